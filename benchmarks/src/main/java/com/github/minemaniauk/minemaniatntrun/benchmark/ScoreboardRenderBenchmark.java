@@ -0,0 +1,112 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.benchmark;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import com.github.minemaniauk.minemaniatntrun.session.TNTScoreboardRenderer;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one scoreboard update, rendering
+ * the frame and showing it to every player.
+ * The frames match the lines of a game in progress.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreboardRenderBenchmark {
+
+    @Param({"8", "32", "100"})
+    private int players;
+
+    private TNTScoreboardRenderer renderer;
+    private List<Player> playerList;
+    private String[][] frames;
+    private int tick;
+
+    @Setup
+    public void setup() {
+        final ServerMock server = MockBukkit.mock();
+
+        this.renderer = new TNTScoreboardRenderer("&e&lTNT RUN");
+        this.playerList = new ArrayList<>();
+        for (int index = 0; index < this.players; index++) {
+            this.playerList.add(server.addPlayer());
+        }
+
+        this.frames = new String[][]{
+                ScoreboardRenderBenchmark.createFrame(this.players),
+                ScoreboardRenderBenchmark.createFrame(this.players - 1)
+        };
+    }
+
+    @TearDown
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public boolean renderChanged() {
+        final boolean changed = this.renderer.render(this.frames[this.tick++ & 1]);
+        for (Player player : this.playerList) {
+            this.renderer.show(player);
+        }
+        return changed;
+    }
+
+    @Benchmark
+    public boolean renderUnchanged() {
+        final boolean changed = this.renderer.render(this.frames[0]);
+        for (Player player : this.playerList) {
+            this.renderer.show(player);
+        }
+        return changed;
+    }
+
+    private static String[] createFrame(int playersAlive) {
+        return new String[]{
+                "&8a1b2c3d",
+                "&7",
+                "&fPlayers Alive &a" + playersAlive,
+                "&7",
+                "&e63.135.76.209:25565"
+        };
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.benchmark;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import com.github.minemaniauk.minemaniatntrun.session.TNTRoster;
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Measures finding the living players and spectators
+ * of a session, as the components do every tick.
+ * The list benchmarks are the list and contains
+ * approach the session used before the roster.
+ * A quarter of the players are spectators.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionRosterBenchmark {
+
+    @Param({"8", "32", "100"})
+    private int players;
+
+    private TNTRoster roster;
+    private List<Player> onlinePlayers;
+    private List<UUID> playersAlive;
+    private Consumer<Player> consumer;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        final ServerMock server = MockBukkit.mock();
+
+        this.roster = new TNTRoster();
+        this.onlinePlayers = new ArrayList<>();
+        this.playersAlive = new ArrayList<>();
+        this.consumer = blackhole::consume;
+
+        for (int index = 0; index < this.players; index++) {
+            final Player player = server.addPlayer();
+            this.roster.setOnline(player);
+            this.onlinePlayers.add(player);
+
+            if (index % 4 == 0) continue;
+            this.roster.setAlive(player.getUniqueId(), true);
+            this.playersAlive.add(player.getUniqueId());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public void rosterAlive() {
+        this.roster.forEachAlive(this.consumer);
+    }
+
+    @Benchmark
+    public void rosterSpectators() {
+        this.roster.forEachSpectator(this.consumer);
+    }
+
+    @Benchmark
+    public boolean rosterIsAlive() {
+        return this.roster.isAlive(this.onlinePlayers.get(this.players - 1).getUniqueId());
+    }
+
+    @Benchmark
+    public List<Player> listAlive() {
+        final List<Player> playerList = new ArrayList<>();
+        for (Player player : this.onlinePlayers) {
+            if (this.playersAlive.contains(player.getUniqueId())) playerList.add(player);
+        }
+        return playerList;
+    }
+
+    @Benchmark
+    public List<Player> listSpectators() {
+        final List<Player> playerList = new ArrayList<>();
+        for (Player player : this.onlinePlayers) {
+            if (this.playersAlive.contains(player.getUniqueId())) continue;
+            playerList.add(player);
+        }
+        return playerList;
+    }
+}
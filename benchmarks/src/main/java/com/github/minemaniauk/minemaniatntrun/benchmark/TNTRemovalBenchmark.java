@@ -0,0 +1,107 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.benchmark;
+
+import com.github.minemaniauk.minemaniatntrun.BlockKey;
+import com.github.minemaniauk.minemaniatntrun.session.TNTBlockIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one removal pass, the neighbourhood
+ * scan under every living player.
+ * The arena has two tnt floors with half of
+ * the blocks already removed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TNTRemovalBenchmark {
+
+    private static final int[] FLOORS = {10, 20};
+
+    @Param({"8", "32", "100"})
+    private int players;
+
+    @Param({"32", "64", "128"})
+    private int arenaSize;
+
+    private TNTBlockIndex index;
+    private int[][] positions;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        this.index = new TNTBlockIndex();
+
+        for (int floor : FLOORS) {
+            for (int x = 0; x < this.arenaSize; x++) {
+                for (int z = 0; z < this.arenaSize; z++) {
+                    if (random.nextBoolean()) this.index.add(BlockKey.pack(x, floor, z));
+                }
+            }
+        }
+
+        // Stand the players on random floors.
+        this.positions = new int[this.players][];
+        for (int player = 0; player < this.players; player++) {
+            this.positions[player] = new int[]{
+                    random.nextInt(this.arenaSize),
+                    FLOORS[random.nextInt(FLOORS.length)] + 1,
+                    random.nextInt(this.arenaSize)
+            };
+        }
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        for (int[] position : this.positions) {
+            blackhole.consume(this.index.findNearest(position[0], position[1] - 1, position[2]));
+        }
+    }
+
+    @Benchmark
+    public void scanAndRemove(Blackhole blackhole) {
+        for (int[] position : this.positions) {
+            final long key = this.index.findNearest(position[0], position[1] - 1, position[2]);
+            if (key == BlockKey.NONE) continue;
+
+            // Put the block back so every invocation sees the same arena.
+            blackhole.consume(this.index.remove(key));
+            this.index.add(key);
+        }
+    }
+}
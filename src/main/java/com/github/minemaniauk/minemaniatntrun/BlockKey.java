@@ -0,0 +1,79 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun;
+
+/**
+ * Represents the block key utility class.
+ * Packs block coordinates into a single long.
+ * <li>26 bits for x, 26 bits for z and 12 bits for y.</li>
+ */
+public final class BlockKey {
+
+    /**
+     * Represents the absence of a key.
+     * This is only produced by packing x = -2^25, which
+     * is outside the world border.
+     */
+    public static final long NONE = Long.MIN_VALUE;
+
+    /**
+     * Used to pack block coordinates into a key.
+     *
+     * @param x The block x coordinate.
+     * @param y The block y coordinate.
+     * @param z The block z coordinate.
+     * @return The packed key.
+     */
+    public static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38)
+                | ((long) (z & 0x3FFFFFF) << 12)
+                | (long) (y & 0xFFF);
+    }
+
+    /**
+     * Used to get the x coordinate of a key.
+     *
+     * @param key The packed key.
+     * @return The block x coordinate.
+     */
+    public static int getX(long key) {
+        return (int) (key >> 38);
+    }
+
+    /**
+     * Used to get the y coordinate of a key.
+     *
+     * @param key The packed key.
+     * @return The block y coordinate.
+     */
+    public static int getY(long key) {
+        return (int) (key << 52 >> 52);
+    }
+
+    /**
+     * Used to get the z coordinate of a key.
+     *
+     * @param key The packed key.
+     * @return The block z coordinate.
+     */
+    public static int getZ(long key) {
+        return (int) (key << 26 >> 38);
+    }
+}
@@ -25,19 +25,41 @@ import com.github.cozyplugins.cozylibrary.location.Region3D;
 import com.github.minemaniauk.api.MineManiaAPI;
 import com.github.minemaniauk.api.game.session.SessionManager;
 import com.github.minemaniauk.bukkitapi.MineManiaAPI_Bukkit;
+import com.github.minemaniauk.minemaniatntrun.arena.ArenaPool;
+import com.github.minemaniauk.minemaniatntrun.arena.ArenaRestoreManager;
+import com.github.minemaniauk.minemaniatntrun.arena.ArenaRestoreMode;
+import com.github.minemaniauk.minemaniatntrun.arena.ArenaSpatialIndex;
 import com.github.minemaniauk.minemaniatntrun.arena.TNTArena;
+import com.github.minemaniauk.minemaniatntrun.commands.TimingsCommand;
 import com.github.minemaniauk.minemaniatntrun.commands.arena.ArenaCreateCommand;
 import com.github.minemaniauk.minemaniatntrun.commands.arena.ArenaSetSchematicCommand;
 import com.github.minemaniauk.minemaniatntrun.commands.arena.ArenaSetSpawnPointCommand;
 import com.github.minemaniauk.minemaniatntrun.configuration.ArenaConfiguration;
+import com.github.minemaniauk.minemaniatntrun.instance.ArenaInstanceAllocator;
+import com.github.minemaniauk.minemaniatntrun.instance.ArenaTemplate;
+import com.github.minemaniauk.minemaniatntrun.player.PlayerMovementListener;
+import com.github.minemaniauk.minemaniatntrun.player.PlayerRoster;
+import com.github.minemaniauk.minemaniatntrun.player.SessionMembershipTracker;
+import com.github.minemaniauk.minemaniatntrun.reward.PawRewardLedger;
+import com.github.minemaniauk.minemaniatntrun.session.SessionTicker;
 import com.github.minemaniauk.minemaniatntrun.session.TNTSession;
-import org.bukkit.Bukkit;
+import com.github.minemaniauk.minemaniatntrun.timing.TimingRegistry;
 import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 /**
  * Represents the main class.
@@ -47,7 +69,19 @@ public final class MineManiaTNTRun extends CozyPlugin {
     private static @NotNull MineManiaTNTRun instance;
 
     private @NotNull ArenaConfiguration arenaConfiguration;
+    private @NotNull ArenaSpatialIndex arenaIndex;
+    private @NotNull SchematicCatalogue schematicCatalogue;
+    private @NotNull SchematicCache schematicCache;
+    private @NotNull ArenaRestoreManager arenaRestoreManager;
+    private @NotNull ArenaPool arenaPool;
     private @NotNull SessionManager<TNTSession, TNTArena> sessionManager;
+    private @NotNull PlayerRoster playerRoster;
+    private @NotNull SessionMembershipTracker membershipTracker;
+    private @NotNull PawRewardLedger rewardLedger;
+    private @NotNull TimingRegistry timings;
+    private @NotNull SessionTicker sessionTicker;
+    private @Nullable World instanceWorld;
+    private @Nullable ArenaInstanceAllocator instanceAllocator;
 
     @Override
     public boolean enableCommandDirectory() {
@@ -61,17 +95,88 @@ public final class MineManiaTNTRun extends CozyPlugin {
         MineManiaTNTRun.instance = this;
 
         // Add configuration.
+        this.saveDefaultConfig();
+
+        // Load the instance world before the arenas stamped into it.
+        if (this.getConfig().getBoolean("arena_instancing.enabled", false)) {
+            this.instanceWorld = ArenaInstanceAllocator.loadWorld(this.getConfig().getString("arena_instancing.world", "tntrun_instances"));
+        }
+
         this.arenaConfiguration = new ArenaConfiguration();
         this.arenaConfiguration.reload();
 
+        // Index the arena regions.
+        this.arenaIndex = new ArenaSpatialIndex();
+        this.arenaIndex.rebuild(this.arenaConfiguration.getAllArenas());
+
+        // Add the schematic catalogue.
+        this.schematicCatalogue = new SchematicCatalogue(
+                WorldEditUtility.getSchematicFolder(),
+                this.getConfig().getLong("schematic_catalogue.settle_millis", 1000)
+        ).start();
+        final long rescanTicks = this.getConfig().getLong("schematic_catalogue.rescan_seconds", 60) * 20;
+        this.getServer().getScheduler().runTaskTimerAsynchronously(this, this.schematicCatalogue::rescan, rescanTicks, rescanTicks);
+
+        // Add the schematic cache and load the arena schematics.
+        this.schematicCache = new SchematicCache(this.schematicCatalogue, this.getConfig().getLong("schematic_cache.max_megabytes", 512) * 1024 * 1024);
+        this.prewarmSchematics();
+
+        // Add the arena restore manager.
+        this.arenaRestoreManager = new ArenaRestoreManager(this.loadRestoreMode());
+
         // Add arenas from configuration to api.
-        this.arenaConfiguration.getAllTypes().forEach(
-                arena -> MineManiaTNTRun.getAPI().getGameManager().registerArena(arena)
-        );
+        this.arenaConfiguration.getRegistrationSync().registerAll(this.arenaConfiguration.getAllArenas());
+
+        // Add the paw reward ledger.
+        this.rewardLedger = new PawRewardLedger(new File(this.getDataFolder(), "rewards.journal")).open();
+        final long flushTicks = this.getConfig().getLong("reward_ledger.flush_seconds", 5) * 20;
+        this.getServer().getScheduler().runTaskTimerAsynchronously(this, this.rewardLedger::flush, flushTicks, flushTicks);
+
+        // Add the component timings.
+        this.timings = new TimingRegistry();
+
+        // Add the ticker that runs the session components.
+        this.sessionTicker = new SessionTicker(this.timings, this.getConfig().getBoolean("adaptive_scheduling.enabled", true)
+                ? this.getConfig().getDoubleList("adaptive_scheduling.thresholds_mspt").stream().mapToDouble(Double::doubleValue).sorted().toArray()
+                : new double[0]
+        ).start();
 
         // Add session manager.
         this.sessionManager = new SessionManager<>();
 
+        // Add the player roster.
+        this.playerRoster = new PlayerRoster();
+        this.getServer().getPluginManager().registerEvents(this.playerRoster, this);
+
+        // Add the session membership tracker.
+        this.membershipTracker = new SessionMembershipTracker();
+        this.getServer().getPluginManager().registerEvents(this.membershipTracker, this);
+
+        // Add the arena pool and start preparing arenas.
+        this.arenaPool = new ArenaPool(this.getConfig().getInt("arena_pool.warm_per_schematic", 1));
+        this.arenaPool.refill();
+
+        // Add the instance allocator and stamp the missing instances.
+        if (this.instanceWorld != null) {
+            this.instanceAllocator = new ArenaInstanceAllocator(
+                    this.instanceWorld,
+                    this.loadTemplates(),
+                    this.getConfig().getInt("arena_instancing.slot_spacing", 256),
+                    this.getConfig().getInt("arena_instancing.max_slots", 64),
+                    this.getConfig().getInt("arena_instancing.paste_y", 64),
+                    this.getConfig().getInt("arena_instancing.idle_per_template", 1),
+                    this.getConfig().getInt("arena_instancing.idle_margin", 1),
+                    this.getConfig().getLong("arena_instancing.reclaim_seconds", 300) * 1000
+            ).start();
+
+            // Remove surplus instances together, so the registered arenas are rarely resynced.
+            final long reclaimTicks = this.getConfig().getLong("arena_instancing.reclaim_seconds", 300) * 20;
+            this.getServer().getScheduler().runTaskTimer(this, this.instanceAllocator::reclaimSurplus, reclaimTicks, reclaimTicks);
+        }
+
+        // Add the player movement listener.
+        this.getServer().getPluginManager().registerEvents(new PlayerMovementListener(), this);
+
         // Add commands.
         this.addCommand(new ProgrammableCommand("tntrun")
                 .setDescription("Contains tnt run commands.")
@@ -83,6 +188,7 @@ public final class MineManiaTNTRun extends CozyPlugin {
                         .addSubCommand(new ArenaSetSpawnPointCommand())
                         .addSubCommand(new ArenaSetSchematicCommand())
                 )
+                .addSubCommand(new TimingsCommand())
         );
     }
 
@@ -92,12 +198,19 @@ public final class MineManiaTNTRun extends CozyPlugin {
 
         // Loop though all sessions and stop them.
         this.sessionManager.stopAllSessionComponents();
+        this.sessionTicker.stop();
 
         // Remove game identifier.
         this.getArenaConfiguration().resetGameIdentifiers();
 
         // Unregister the local arenas.
         MineManiaTNTRun.getAPI().getGameManager().unregisterLocalArenas();
+
+        // Stop watching the schematics folder.
+        this.schematicCatalogue.stop();
+
+        // Pay the queued paw rewards.
+        this.rewardLedger.close();
     }
 
     /**
@@ -109,6 +222,114 @@ public final class MineManiaTNTRun extends CozyPlugin {
         return this.arenaConfiguration;
     }
 
+    /**
+     * Used to get the spatial index of arena regions.
+     *
+     * @return The instance of the arena index.
+     */
+    public @NotNull ArenaSpatialIndex getArenaIndex() {
+        return this.arenaIndex;
+    }
+
+    /**
+     * Used to get the instance of the schematic catalogue.
+     *
+     * @return The instance of the schematic catalogue.
+     */
+    public @NotNull SchematicCatalogue getSchematicCatalogue() {
+        return this.schematicCatalogue;
+    }
+
+    /**
+     * Used to get the instance of the schematic cache.
+     *
+     * @return The instance of the schematic cache.
+     */
+    public @NotNull SchematicCache getSchematicCache() {
+        return this.schematicCache;
+    }
+
+    /**
+     * Used to get the instance of the arena restore manager.
+     *
+     * @return The instance of the arena restore manager.
+     */
+    public @NotNull ArenaRestoreManager getArenaRestoreManager() {
+        return this.arenaRestoreManager;
+    }
+
+    /**
+     * Used to get the pool of arenas that are ready to play.
+     *
+     * @return The instance of the arena pool.
+     */
+    public @NotNull ArenaPool getArenaPool() {
+        return this.arenaPool;
+    }
+
+    /**
+     * Used to get the instance of the paw reward ledger.
+     *
+     * @return The instance of the reward ledger.
+     */
+    public @NotNull PawRewardLedger getRewardLedger() {
+        return this.rewardLedger;
+    }
+
+    /**
+     * Used to get the registry of component timings.
+     *
+     * @return The instance of the timing registry.
+     */
+    public @NotNull TimingRegistry getTimings() {
+        return this.timings;
+    }
+
+    /**
+     * Used to get the ticker that runs the session components.
+     *
+     * @return The instance of the session ticker.
+     */
+    public @NotNull SessionTicker getSessionTicker() {
+        return this.sessionTicker;
+    }
+
+    /**
+     * Used to get the allocator that stamps arena instances.
+     *
+     * @return The optional instance allocator,
+     * empty if instancing is disabled.
+     */
+    public @NotNull Optional<ArenaInstanceAllocator> getInstanceAllocator() {
+        return Optional.ofNullable(this.instanceAllocator);
+    }
+
+    /**
+     * Used to get an executor that runs tasks on the
+     * main server thread.
+     *
+     * @return The main thread executor.
+     */
+    public @NotNull Executor getMainThreadExecutor() {
+        return runnable -> {
+            if (this.getServer().isPrimaryThread()) {
+                runnable.run();
+                return;
+            }
+            this.getServer().getScheduler().runTask(this, runnable);
+        };
+    }
+
+    /**
+     * Used to get an executor that runs tasks on
+     * the server's asynchronous task pool.
+     *
+     * @return The asynchronous executor.
+     */
+    public @NotNull Executor getAsyncExecutor() {
+        return runnable -> this.getServer().getScheduler().runTaskAsynchronously(this, runnable);
+    }
+
     /**
      * Used to get the instance of the session manager.
      *
@@ -118,6 +339,24 @@ public final class MineManiaTNTRun extends CozyPlugin {
         return this.sessionManager;
     }
 
+    /**
+     * Used to get the instance of the player roster.
+     *
+     * @return The instance of the player roster.
+     */
+    public @NotNull PlayerRoster getPlayerRoster() {
+        return this.playerRoster;
+    }
+
+    /**
+     * Used to get the instance of the session membership tracker.
+     *
+     * @return The instance of the membership tracker.
+     */
+    public @NotNull SessionMembershipTracker getMembershipTracker() {
+        return this.membershipTracker;
+    }
+
     /**
      * Used to create a new arena and register it
      * with the api and plugin.
@@ -135,10 +374,65 @@ public final class MineManiaTNTRun extends CozyPlugin {
         arena.setMaxPlayers(maxPlayers);
 
         // Register and save the arena.
-        MineManiaTNTRun.getAPI().getGameManager().registerArena(arena);
+        this.arenaConfiguration.getRegistrationSync().registerAll(List.of(arena));
+        this.arenaIndex.update(arena);
         return arena;
     }
 
+    /**
+     * Used to load the schematic of every configured
+     * arena into the cache asynchronously.
+     */
+    public void prewarmSchematics() {
+        Set<String> schematicSet = new HashSet<>();
+        for (TNTArena arena : this.getArenaConfiguration().getAllArenas()) {
+            arena.getOptionalSchematic().ifPresent(schematicSet::add);
+        }
+
+        this.getServer().getScheduler().runTaskAsynchronously(this, () -> {
+            final long startTime = System.currentTimeMillis();
+            final int amount = this.schematicCache.prewarm(schematicSet);
+            this.getLogger().info("Prewarmed " + amount + " schematics in " + (System.currentTimeMillis() - startTime) + "ms.");
+        });
+    }
+
+    /**
+     * Used to load the arena restore mode from the configuration.
+     * An unknown mode falls back to differential restores,
+     * so a typo does not stop the plugin from enabling.
+     *
+     * @return The arena restore mode.
+     */
+    private @NotNull ArenaRestoreMode loadRestoreMode() {
+        final String mode = this.getConfig().getString("arena_restore.mode", "DIFFERENTIAL");
+
+        try {
+            return ArenaRestoreMode.valueOf(mode.trim().toUpperCase());
+        } catch (IllegalArgumentException exception) {
+            this.getLogger().warning("Unknown arena restore mode {" + mode + "}, using DIFFERENTIAL instead.");
+            return ArenaRestoreMode.DIFFERENTIAL;
+        }
+    }
+
+    /**
+     * Used to load the arena templates from the configuration.
+     *
+     * @return The templates mapped by identifier.
+     */
+    private @NotNull Map<String, ArenaTemplate> loadTemplates() {
+        final Map<String, ArenaTemplate> templateMap = new LinkedHashMap<>();
+        final ConfigurationSection section = this.getConfig().getConfigurationSection("arena_instancing.templates");
+        if (section == null) return templateMap;
+
+        for (String identifier : section.getKeys(false)) {
+            final ConfigurationSection templateSection = section.getConfigurationSection(identifier);
+            if (templateSection == null) continue;
+            templateMap.put(identifier, ArenaTemplate.of(identifier, templateSection));
+        }
+
+        return templateMap;
+    }
+
     /**
      * Used to get the instance of an arena from a specific location.
      *
@@ -146,11 +440,7 @@ public final class MineManiaTNTRun extends CozyPlugin {
      * @return The arena that contains the location.
      */
     public @NotNull Optional<TNTArena> getArena(@NotNull Location location) {
-        for (TNTArena arena : this.getArenaConfiguration().getAllTypes()) {
-            if (arena.getRegion().contains(location)) return Optional.of(arena);
-        }
-
-        return Optional.empty();
+        return this.arenaIndex.getArena(location);
     }
 
     /**
@@ -160,10 +450,7 @@ public final class MineManiaTNTRun extends CozyPlugin {
      * @return The optional player.
      */
     public @NotNull Optional<Player> getOnlinePlayer(@NotNull UUID playerUuid) {
-        for (Player player : Bukkit.getOnlinePlayers()) {
-            if (player.getUniqueId().equals(playerUuid)) return Optional.of(player);
-        }
-        return Optional.empty();
+        return this.playerRoster.getOptionalPlayer(playerUuid);
     }
 
     /**
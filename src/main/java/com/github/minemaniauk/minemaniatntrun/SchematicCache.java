@@ -0,0 +1,375 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun;
+
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents a bounded cache of loaded schematics.
+ * Entries are keyed by schematic identifier and are reloaded
+ * when the file's modification time changes. The least recently
+ * used entries are evicted when the estimated memory is too high,
+ * and their clipboards are closed once no lease holds them.
+ */
+public class SchematicCache {
+
+    /**
+     * The estimated number of bytes used by each block in a clipboard.
+     */
+    private static final long BYTES_PER_BLOCK = 4;
+
+    private final @NotNull SchematicCatalogue catalogue;
+    private final long maxBytes;
+    private final @NotNull Map<String, Entry> entryMap;
+    private final @NotNull Map<String, Loading> loadingMap;
+    private long usedBytes;
+
+    private final @NotNull AtomicLong hits;
+    private final @NotNull AtomicLong misses;
+    private final @NotNull AtomicLong loadNanos;
+    private final @NotNull AtomicLong evictions;
+
+    /**
+     * Used to create a schematic cache.
+     *
+     * @param catalogue The catalogue used to check
+     *                  when schematics have changed.
+     * @param maxBytes The estimated number of bytes
+     *                 the cache may use.
+     */
+    public SchematicCache(@NotNull SchematicCatalogue catalogue, long maxBytes) {
+        this.catalogue = catalogue;
+        this.maxBytes = maxBytes;
+        this.entryMap = new LinkedHashMap<>(16, 0.75f, true);
+        this.loadingMap = new HashMap<>();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.loadNanos = new AtomicLong();
+        this.evictions = new AtomicLong();
+    }
+
+    /**
+     * Used to get a schematic, loading it from
+     * the file if it is not cached or has changed.
+     * If the schematic is already being loaded,
+     * this waits for that load instead.
+     * The lease must be closed once the clipboard is no
+     * longer used, so an evicted clipboard can be closed.
+     *
+     * @param identifier The schematic identifier.
+     *                   Without extensions.
+     * @return The lease of the requested clipboard.
+     */
+    public @Nullable Lease acquire(@NotNull String identifier) {
+        final long lastModified = this.catalogue.getLastModified(identifier);
+
+        // Check if the schematic does not exist.
+        if (lastModified < 0) return null;
+
+        while (true) {
+            final Loading loading;
+            boolean loader = false;
+
+            synchronized (this) {
+
+                // Check if the schematic is cached.
+                final Entry entry = this.entryMap.get(identifier);
+                if (entry != null && entry.lastModified == lastModified) {
+                    this.hits.incrementAndGet();
+                    return new Lease(entry);
+                }
+
+                // Check if the schematic is already being loaded.
+                final Loading current = this.loadingMap.get(identifier);
+                if (current != null && current.lastModified == lastModified) {
+                    loading = current;
+                } else {
+                    loading = new Loading(lastModified);
+                    this.loadingMap.put(identifier, loading);
+                    loader = true;
+                }
+            }
+
+            if (loader) this.load(identifier, loading);
+
+            final Entry entry;
+            try {
+                entry = loading.future.join();
+            } catch (CompletionException exception) {
+                if (exception.getCause() instanceof RuntimeException cause) throw cause;
+                throw exception;
+            }
+            if (entry == null) return null;
+
+            // Check if the schematic was evicted before it could be used.
+            synchronized (this) {
+                if (!entry.closed) return new Lease(entry);
+            }
+        }
+    }
+
+    /**
+     * Used to load a schematic outside the lock
+     * and give it to everyone waiting for it.
+     *
+     * @param identifier The schematic identifier.
+     * @param loading    The load being waited on.
+     */
+    private void load(@NotNull String identifier, @NotNull Loading loading) {
+        this.misses.incrementAndGet();
+
+        try {
+            final long startTime = System.nanoTime();
+            final Clipboard clipboard = WorldEditUtility.loadSchematic(WorldEditUtility.getSchematicFile(identifier));
+            this.loadNanos.addAndGet(System.nanoTime() - startTime);
+
+            final Entry entry = clipboard == null ? null : new Entry(clipboard, loading.lastModified);
+            if (entry != null) this.put(identifier, entry);
+            loading.future.complete(entry);
+
+        } catch (RuntimeException exception) {
+            loading.future.completeExceptionally(exception);
+
+        } finally {
+            synchronized (this) {
+                this.loadingMap.remove(identifier, loading);
+            }
+        }
+    }
+
+    /**
+     * Used to load schematics into the cache
+     * before they are needed.
+     *
+     * @param identifiers The schematic identifiers.
+     * @return The number of schematics that are cached.
+     */
+    public int prewarm(@NotNull Collection<String> identifiers) {
+        int amount = 0;
+
+        for (String identifier : identifiers) {
+            try (Lease lease = this.acquire(identifier)) {
+                if (lease != null) amount++;
+            } catch (RuntimeException exception) {
+                MineManiaTNTRun.getInstance().getLogger().warning("Unable to prewarm schematic {" + identifier + "}.");
+            }
+        }
+
+        return amount;
+    }
+
+    /**
+     * Used to remove every schematic from the cache.
+     *
+     * @return This instance.
+     */
+    public synchronized @NotNull SchematicCache clear() {
+        for (Entry entry : this.entryMap.values()) this.retire(entry);
+        this.entryMap.clear();
+        this.usedBytes = 0;
+        return this;
+    }
+
+    /**
+     * Used to get the number of times a cached schematic was used.
+     *
+     * @return The number of cache hits.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Used to get the number of times a schematic had to be loaded.
+     *
+     * @return The number of cache misses.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Used to get the total time spent loading schematics.
+     *
+     * @return The total load time in nanoseconds.
+     */
+    public long getLoadNanos() {
+        return this.loadNanos.get();
+    }
+
+    /**
+     * Used to get the number of schematics evicted
+     * to stay within the memory limit.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    /**
+     * Used to get the estimated memory used by the cache.
+     *
+     * @return The estimated number of bytes.
+     */
+    public synchronized long getUsedBytes() {
+        return this.usedBytes;
+    }
+
+    /**
+     * Used to get the estimated memory the cache may use.
+     *
+     * @return The estimated number of bytes.
+     */
+    public long getMaxBytes() {
+        return this.maxBytes;
+    }
+
+    private synchronized void put(@NotNull String identifier, @NotNull Entry entry) {
+        final Entry previous = this.entryMap.put(identifier, entry);
+        if (previous != null) {
+            this.usedBytes -= previous.bytes;
+            this.retire(previous);
+        }
+        this.usedBytes += entry.bytes;
+
+        // Evict the least recently used schematics.
+        final Iterator<Map.Entry<String, Entry>> iterator = this.entryMap.entrySet().iterator();
+        while (this.usedBytes > this.maxBytes && iterator.hasNext()) {
+            final Map.Entry<String, Entry> eldest = iterator.next();
+
+            // Always keep the schematic that was just loaded.
+            if (eldest.getValue() == entry) continue;
+
+            this.usedBytes -= eldest.getValue().bytes;
+            this.retire(eldest.getValue());
+            iterator.remove();
+            this.evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Used to close a clipboard that is no longer cached,
+     * or to close it when its last lease is closed.
+     *
+     * @param entry The entry that was removed.
+     */
+    private synchronized void retire(@NotNull Entry entry) {
+        entry.retired = true;
+        if (entry.holders == 0) this.close(entry);
+    }
+
+    private synchronized void release(@NotNull Entry entry) {
+        entry.holders--;
+        if (entry.retired && entry.holders == 0) this.close(entry);
+    }
+
+    private void close(@NotNull Entry entry) {
+        if (entry.closed) return;
+        entry.closed = true;
+
+        try {
+            entry.clipboard.close();
+        } catch (Exception exception) {
+            MineManiaTNTRun.getInstance().getLogger().warning("Unable to close an evicted schematic.");
+        }
+    }
+
+    /**
+     * Represents a schematic being used.
+     * The clipboard is not closed until every lease is closed.
+     */
+    public class Lease implements AutoCloseable {
+
+        private final @NotNull Entry entry;
+        private boolean released;
+
+        private Lease(@NotNull Entry entry) {
+            this.entry = entry;
+            this.entry.holders++;
+        }
+
+        /**
+         * Used to get the leased clipboard.
+         *
+         * @return The clipboard.
+         */
+        public @NotNull Clipboard getClipboard() {
+            return this.entry.clipboard;
+        }
+
+        /**
+         * Used to stop using the clipboard.
+         * Calling this more than once does nothing.
+         */
+        @Override
+        public void close() {
+            synchronized (SchematicCache.this) {
+                if (this.released) return;
+                this.released = true;
+                SchematicCache.this.release(this.entry);
+            }
+        }
+    }
+
+    /**
+     * Represents a schematic being loaded.
+     */
+    private static class Loading {
+
+        private final long lastModified;
+        private final @NotNull CompletableFuture<Entry> future;
+
+        private Loading(long lastModified) {
+            this.lastModified = lastModified;
+            this.future = new CompletableFuture<>();
+        }
+    }
+
+    /**
+     * Represents a cached schematic.
+     */
+    private static class Entry {
+
+        private final @NotNull Clipboard clipboard;
+        private final long lastModified;
+        private final long bytes;
+        private int holders;
+        private boolean retired;
+        private boolean closed;
+
+        private Entry(@NotNull Clipboard clipboard, long lastModified) {
+            this.clipboard = clipboard;
+            this.lastModified = lastModified;
+            this.bytes = clipboard.getRegion().getVolume() * BYTES_PER_BLOCK;
+        }
+    }
+}
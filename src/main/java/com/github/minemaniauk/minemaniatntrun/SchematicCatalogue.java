@@ -0,0 +1,363 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents the catalogue of available schematics.
+ * The catalogue is kept up to date by watching the
+ * schematics folder, so checking for a schematic never
+ * touches the file system. Files that are created or changed
+ * are only used once they have stayed unchanged for a short
+ * delay after the last change, so a file that is still
+ * being written is not loaded.
+ */
+public class SchematicCatalogue {
+
+    private static final @NotNull String EXTENSION = ".schem";
+
+    private final @NotNull File folder;
+    private final long settleNanos;
+    private final @NotNull Map<String, Metadata> metadataMap;
+    private final @NotNull Map<String, Metadata> settlingMap;
+    private final @NotNull Map<String, Long> deadlineMap;
+    private volatile @NotNull List<String> identifierList;
+    private @Nullable WatchService watchService;
+    private @Nullable Thread watchThread;
+
+    /**
+     * Used to create a schematic catalogue.
+     *
+     * @param folder       The schematics folder.
+     * @param settleMillis How long a changed file must stay
+     *                     unchanged before it is used.
+     */
+    public SchematicCatalogue(@NotNull File folder, long settleMillis) {
+        this.folder = folder;
+        this.settleNanos = TimeUnit.MILLISECONDS.toNanos(settleMillis);
+        this.metadataMap = new ConcurrentHashMap<>();
+        this.settlingMap = new HashMap<>();
+        this.deadlineMap = new HashMap<>();
+        this.identifierList = List.of();
+    }
+
+    /**
+     * Used to scan the folder and start watching it for changes.
+     *
+     * @return This instance.
+     */
+    public @NotNull SchematicCatalogue start() {
+        if (!this.folder.exists() && !this.folder.mkdirs()) {
+            MineManiaTNTRun.getInstance().getLogger().warning("Unable to create the schematics folder " + this.folder);
+        }
+
+        this.rescan();
+
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            this.folder.toPath().register(this.watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE
+            );
+        } catch (IOException exception) {
+            MineManiaTNTRun.getInstance().getLogger().warning("Unable to watch the schematics folder, it will only be rescanned.");
+            return this;
+        }
+
+        this.watchThread = new Thread(this::watch, "MineManiaTNTRun-SchematicCatalogue");
+        this.watchThread.setDaemon(true);
+        this.watchThread.start();
+        return this;
+    }
+
+    /**
+     * Used to stop watching the folder.
+     *
+     * @return This instance.
+     */
+    public @NotNull SchematicCatalogue stop() {
+        if (this.watchService == null) return this;
+
+        try {
+            this.watchService.close();
+        } catch (IOException exception) {
+            MineManiaTNTRun.getInstance().getLogger().warning("Unable to close the schematics folder watch service.");
+        }
+
+        this.watchService = null;
+        this.watchThread = null;
+        return this;
+    }
+
+    /**
+     * Used to read the whole folder again.
+     * Changes that the watch service cannot see,
+     * such as changes on network storage, are picked up here.
+     *
+     * @return This instance.
+     */
+    public synchronized @NotNull SchematicCatalogue rescan() {
+        final File[] files = this.folder.listFiles();
+        final Map<String, Metadata> scannedMap = new HashMap<>();
+
+        if (files != null) {
+            for (File file : files) {
+                final String identifier = SchematicCatalogue.getIdentifier(file.getName());
+                if (identifier == null || !file.isFile()) continue;
+                scannedMap.put(identifier, new Metadata(file.length(), file.lastModified()));
+            }
+        }
+
+        this.metadataMap.keySet().retainAll(scannedMap.keySet());
+        this.settlingMap.keySet().retainAll(scannedMap.keySet());
+        this.deadlineMap.keySet().retainAll(scannedMap.keySet());
+
+        for (Map.Entry<String, Metadata> entry : scannedMap.entrySet()) {
+            final Metadata settling = this.settlingMap.get(entry.getKey());
+
+            // Check if the file is still being written.
+            if (settling != null && !settling.equals(entry.getValue())) {
+                this.settlingMap.put(entry.getKey(), entry.getValue());
+                continue;
+            }
+
+            this.settlingMap.remove(entry.getKey());
+            this.deadlineMap.remove(entry.getKey());
+            this.metadataMap.put(entry.getKey(), entry.getValue());
+        }
+
+        this.rebuildIdentifierList();
+        return this;
+    }
+
+    /**
+     * Used to check if a schematic exists.
+     *
+     * @param identifier The schematic identifier.
+     *                   Without extensions.
+     * @return True if the schematic exists.
+     */
+    public boolean contains(@NotNull String identifier) {
+        return this.metadataMap.containsKey(identifier);
+    }
+
+    /**
+     * Used to get the list of schematic identifiers.
+     *
+     * @return The unmodifiable list of identifiers.
+     */
+    public @NotNull List<String> getIdentifiers() {
+        return this.identifierList;
+    }
+
+    /**
+     * Used to get when a schematic was last modified.
+     *
+     * @param identifier The schematic identifier.
+     *                   Without extensions.
+     * @return The last modified time or -1 if it does not exist.
+     */
+    public long getLastModified(@NotNull String identifier) {
+        final Metadata metadata = this.metadataMap.get(identifier);
+        return metadata == null ? -1 : metadata.lastModified;
+    }
+
+    /**
+     * Used to get the size of a schematic file.
+     *
+     * @param identifier The schematic identifier.
+     *                   Without extensions.
+     * @return The size in bytes or -1 if it does not exist.
+     */
+    public long getSize(@NotNull String identifier) {
+        final Metadata metadata = this.metadataMap.get(identifier);
+        return metadata == null ? -1 : metadata.size;
+    }
+
+    private void watch() {
+        final WatchService service = this.watchService;
+        if (service == null) return;
+
+        try {
+            while (true) {
+
+                // Wait for the next change, or for the next
+                // changed file to finish its delay.
+                final long next = this.settle();
+                final WatchKey key = next == -1
+                        ? service.take()
+                        : service.poll(next, TimeUnit.NANOSECONDS);
+                if (key == null) continue;
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+
+                    // Check if events were lost.
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        this.rescan();
+                        continue;
+                    }
+
+                    final Path path = (Path) event.context();
+                    final String identifier = SchematicCatalogue.getIdentifier(path.toString());
+                    if (identifier == null) continue;
+
+                    this.update(identifier, new File(this.folder, path.toString()));
+                }
+
+                if (!key.reset()) return;
+            }
+
+        } catch (InterruptedException | ClosedWatchServiceException exception) {
+            // The catalogue was stopped.
+        }
+    }
+
+    /**
+     * Used to apply a watch event under the same lock as a rescan,
+     * so an older scan cannot overwrite a newer change.
+     * Changed files are used once they have stayed
+     * unchanged for the delay after this change.
+     *
+     * @param identifier The schematic identifier.
+     * @param file       The file that changed.
+     */
+    private synchronized void update(@NotNull String identifier, @NotNull File file) {
+        if (!file.isFile()) {
+            this.metadataMap.remove(identifier);
+            this.settlingMap.remove(identifier);
+            this.deadlineMap.remove(identifier);
+            this.rebuildIdentifierList();
+            return;
+        }
+
+        this.settlingMap.put(identifier, new Metadata(file.length(), file.lastModified()));
+        this.deadlineMap.put(identifier, System.nanoTime() + this.settleNanos);
+    }
+
+    /**
+     * Used to use the changed files that have
+     * not changed again since their delay ended.
+     * Files that have changed again wait for another delay.
+     *
+     * @return The time until the next delay ends
+     *         in nanoseconds, or -1 if nothing is settling.
+     */
+    private synchronized long settle() {
+        final long now = System.nanoTime();
+        long next = -1;
+        boolean changed = false;
+
+        final Iterator<Map.Entry<String, Long>> iterator = this.deadlineMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Long> entry = iterator.next();
+            long remaining = entry.getValue() - now;
+
+            if (remaining <= 0) {
+                final String identifier = entry.getKey();
+                final File file = new File(this.folder, identifier + EXTENSION);
+                final Metadata metadata = new Metadata(file.length(), file.lastModified());
+
+                // Check if the file has been removed.
+                if (!file.isFile()) {
+                    iterator.remove();
+                    this.settlingMap.remove(identifier);
+                    changed |= this.metadataMap.remove(identifier) != null;
+                    continue;
+                }
+
+                // Check if the file has stayed unchanged.
+                if (metadata.equals(this.settlingMap.get(identifier))) {
+                    iterator.remove();
+                    this.settlingMap.remove(identifier);
+                    this.metadataMap.put(identifier, metadata);
+                    changed = true;
+                    continue;
+                }
+
+                // Wait again, the file is still being written.
+                this.settlingMap.put(identifier, metadata);
+                entry.setValue(now + this.settleNanos);
+                remaining = this.settleNanos;
+            }
+
+            if (next == -1 || remaining < next) next = remaining;
+        }
+
+        if (changed) this.rebuildIdentifierList();
+        return next;
+    }
+
+    private synchronized void rebuildIdentifierList() {
+        final List<String> list = new ArrayList<>(this.metadataMap.keySet());
+        Collections.sort(list);
+        this.identifierList = Collections.unmodifiableList(list);
+    }
+
+    private static @Nullable String getIdentifier(@NotNull String fileName) {
+        if (!fileName.endsWith(EXTENSION)) return null;
+        return fileName.substring(0, fileName.length() - EXTENSION.length());
+    }
+
+    /**
+     * Represents the metadata of a schematic file.
+     */
+    private static class Metadata {
+
+        private final long size;
+        private final long lastModified;
+
+        private Metadata(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Metadata metadata)) return false;
+            return this.size == metadata.size && this.lastModified == metadata.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(this.size) * 31 + Long.hashCode(this.lastModified);
+        }
+    }
+}
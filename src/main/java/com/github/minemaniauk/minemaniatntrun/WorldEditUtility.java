@@ -2,6 +2,7 @@ package com.github.minemaniauk.minemaniatntrun;
 
 import com.github.cozyplugins.cozylibrary.location.Region3D;
 import com.github.cozyplugins.cozylibrary.user.PlayerUser;
+import com.fastasyncworldedit.core.extent.processor.lighting.RelightMode;
 import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.LocalSession;
 import com.sk89q.worldedit.WorldEdit;
@@ -14,9 +15,11 @@ import com.sk89q.worldedit.extent.clipboard.io.ClipboardReader;
 import com.sk89q.worldedit.function.operation.Operation;
 import com.sk89q.worldedit.function.operation.Operations;
 import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.regions.CuboidRegion;
 import com.sk89q.worldedit.regions.Region;
 import com.sk89q.worldedit.session.ClipboardHolder;
 import com.sk89q.worldedit.world.World;
+import com.sk89q.worldedit.world.block.BlockTypes;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.jetbrains.annotations.NotNull;
@@ -25,8 +28,6 @@ import org.jetbrains.annotations.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -80,40 +81,63 @@ public final class WorldEditUtility {
      * @return The list of schematic identifiers.
      */
     public static List<String> getSchematicList() {
+        return MineManiaTNTRun.getInstance().getSchematicCatalogue().getIdentifiers();
+    }
 
-        // Get the schematics folder.
-        File folder = new File(
-                Bukkit.getServer().getPluginManager().getPlugin("FastAsyncWorldEdit").getDataFolder()
-                        + "/schematics"
-        );
-
-        String[] fileNames = folder.list();
-        if (fileNames == null) return new ArrayList<>();
-
-        List<String> fileNameList = new ArrayList<>(Arrays.asList(fileNames));
-        List<String> fileNameWithoutExstentionList = new ArrayList<>();
-
-        // Replace the extensions with nothing.
-        for (String fileName : fileNameList) {
-            fileNameWithoutExstentionList.add(fileName.replace(".schem", ""));
-        }
+    /**
+     * Used to check if a schematic exists.
+     *
+     * @param identifier The schematic identifier.
+     *                   Without extensions.
+     * @return True if the schematic exists.
+     */
+    public static boolean hasSchematic(@NotNull String identifier) {
+        return MineManiaTNTRun.getInstance().getSchematicCatalogue().contains(identifier);
+    }
 
-        return fileNameWithoutExstentionList;
+    /**
+     * Used to get the world edit schematics folder.
+     *
+     * @return The schematics folder.
+     */
+    public static @NotNull File getSchematicFolder() {
+        return new File(
+                Bukkit.getServer().getPluginManager().getPlugin("FastAsyncWorldEdit").getDataFolder(),
+                "schematics"
+        );
     }
 
     /**
      * Used to get a schematic from world edit.
+     * Schematics are kept in the schematic cache,
+     * so the lease must be closed once the clipboard is not used.
+     *
+     * @param identifier The schematic identifier.
+     *                   Without extensions.
+     * @return The lease of the requested clipboard.
+     */
+    public static @Nullable SchematicCache.Lease getSchematic(String identifier) {
+        return MineManiaTNTRun.getInstance().getSchematicCache().acquire(identifier);
+    }
+
+    /**
+     * Used to get the file of a schematic.
      *
      * @param identifier The schematic identifier.
      *                   Without extensions.
+     * @return The schematic file.
+     */
+    public static @NotNull File getSchematicFile(@NotNull String identifier) {
+        return new File(WorldEditUtility.getSchematicFolder(), identifier + ".schem");
+    }
+
+    /**
+     * Used to read a schematic from a file.
+     *
+     * @param file The schematic file.
      * @return The requested clipboard.
      */
-    public static @Nullable Clipboard getSchematic(String identifier) {
-        // Create file instance.
-        File file = new File(
-                Bukkit.getServer().getPluginManager().getPlugin("FastAsyncWorldEdit").getDataFolder() + "/schematics",
-                identifier + ".schem"
-        );
+    public static @Nullable Clipboard loadSchematic(@NotNull File file) {
 
         // Get clipboard format.
         ClipboardFormat format = ClipboardFormats.findByFile(file);
@@ -154,4 +178,48 @@ public final class WorldEditUtility {
             throw new RuntimeException(exception);
         }
     }
+
+    /**
+     * Used to create an edit session that writes blocks in
+     * fast mode, without physics, relighting or history.
+     * The changes are written when the session is closed.
+     *
+     * @param world The bukkit world to edit.
+     * @return The edit session.
+     */
+    public static @NotNull EditSession createFastEditSession(@NotNull org.bukkit.World world) {
+        return WorldEdit.getInstance().newEditSessionBuilder()
+                .world(BukkitAdapter.adapt(world))
+                .fastMode(true)
+                .relightMode(RelightMode.NONE)
+                .changeSetNull()
+                .limitUnlimited()
+                .build();
+    }
+
+    /**
+     * Used to set every block in a region to air.
+     * This can be called asynchronously.
+     *
+     * @param region The region to clear.
+     */
+    public static void clearRegion(@NotNull Region3D region) {
+
+        // Get the instance of the world.
+        World world = BukkitAdapter.adapt(region.getMinPoint().getWorld());
+
+        // Set the blocks.
+        try (EditSession editSession = WorldEdit.getInstance().newEditSession(world)) {
+
+            editSession.setBlocks((Region) new CuboidRegion(
+                    world,
+                    BlockVector3.at(region.getMinPoint().getBlockX(), region.getMinPoint().getBlockY(), region.getMinPoint().getBlockZ()),
+                    BlockVector3.at(region.getMaxPoint().getBlockX(), region.getMaxPoint().getBlockY(), region.getMaxPoint().getBlockZ())
+            ), BlockTypes.AIR.getDefaultState());
+
+        } catch (Exception exception) {
+            MineManiaTNTRun.getInstance().getLogger().warning("Tried to clear a region but was unable to.");
+            throw new RuntimeException(exception);
+        }
+    }
 }
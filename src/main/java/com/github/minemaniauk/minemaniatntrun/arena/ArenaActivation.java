@@ -0,0 +1,184 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.arena;
+
+import com.github.minemaniauk.api.MineManiaLocation;
+import com.github.minemaniauk.api.database.record.GameRoomRecord;
+import com.github.minemaniauk.api.user.MineManiaUser;
+import com.github.minemaniauk.bukkitapi.BukkitLocationConverter;
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import com.github.minemaniauk.minemaniatntrun.session.TNTBlockIndex;
+import com.github.minemaniauk.minemaniatntrun.session.TNTSession;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Represents the activation of an arena for a game room.
+ * Activation is split into stages that each return a future.
+ * <li>Take the arena from the pool, or prepare it if it is not there.</li>
+ * <li>Verify the tnt is in the world on the main thread.</li>
+ * <li>Start the session and teleport the players on the main thread.</li>
+ */
+public class ArenaActivation {
+
+    private final @NotNull TNTArena arena;
+    private final @NotNull Duration timeout;
+    private final @NotNull AtomicBoolean failed;
+    private ArenaPreparation preparation;
+
+    /**
+     * Used to create an arena activation.
+     *
+     * @param arena   The arena to activate.
+     * @param timeout How long the activation may take
+     *                before it is treated as failed.
+     */
+    public ArenaActivation(@NotNull TNTArena arena, @NotNull Duration timeout) {
+        this.arena = arena;
+        this.timeout = timeout;
+        this.failed = new AtomicBoolean(false);
+    }
+
+    /**
+     * Used to start activating the arena.
+     *
+     * @return A future completed with the started session.
+     */
+    public @NotNull CompletableFuture<TNTSession> start() {
+        return this.prepare()
+                .thenCompose(index -> ArenaPreparation.verify(this.arena, index))
+                .thenCompose(this::startSession)
+                .orTimeout(this.timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((session, throwable) -> {
+                    if (throwable != null) this.fail(throwable);
+                });
+    }
+
+    /**
+     * Used to get the arena's tnt index from the pool,
+     * or to prepare the arena if it is not in the pool.
+     * If the pooled preparation failed, the arena is
+     * prepared again once it has settled.
+     *
+     * @return A future completed with the tnt index.
+     */
+    private @NotNull CompletableFuture<TNTBlockIndex> prepare() {
+        return CompletableFuture.supplyAsync(
+                () -> MineManiaTNTRun.getInstance().getArenaPool().take(this.arena),
+                MineManiaTNTRun.getInstance().getMainThreadExecutor()
+        ).thenCompose(warmPreparation -> {
+            if (warmPreparation.isEmpty()) return this.startPreparation(new ArenaPreparation(this.arena));
+
+            return this.startPreparation(warmPreparation.get()).exceptionallyCompose(throwable -> this.startPreparation(
+                    new ArenaPreparation(this.arena, warmPreparation.get().getSettled())
+            ));
+        });
+    }
+
+    /**
+     * Used to start a preparation and remember it,
+     * so it can be cancelled if the activation fails.
+     *
+     * @param preparation The preparation to start.
+     * @return A future completed with the tnt index.
+     */
+    private synchronized @NotNull CompletableFuture<TNTBlockIndex> startPreparation(@NotNull ArenaPreparation preparation) {
+        this.preparation = preparation;
+        if (this.failed.get()) preparation.cancel();
+        return preparation.start();
+    }
+
+    /**
+     * Used to start the session and teleport the players.
+     *
+     * @param index The index of the tnt in the arena.
+     * @return A future completed with the session.
+     */
+    private @NotNull CompletableFuture<TNTSession> startSession(@NotNull TNTBlockIndex index) {
+        return CompletableFuture.supplyAsync(() -> {
+            this.checkNotFailed();
+
+            // Check if the game room still exists.
+            GameRoomRecord gameRoomRecord = this.arena.getGameRoom().orElse(null);
+            if (gameRoomRecord == null) {
+                throw new IllegalStateException("Couldn't not find game room identifier {" + this.arena.getGameRoomIdentifier() + "} for " + this.arena.getIdentifier());
+            }
+
+            TNTSession session = new TNTSession(this.arena.getIdentifier(), index);
+            MineManiaTNTRun.getInstance()
+                    .getSessionManager()
+                    .registerSession(session);
+            MineManiaTNTRun.getInstance().getMembershipTracker().register(session);
+
+            // Get spawn point as a mine mania location.
+            MineManiaLocation location = new BukkitLocationConverter()
+                    .getMineManiaLocation(this.arena.getSpawnPoint());
+
+            // Teleport the players.
+            for (MineManiaUser user : gameRoomRecord.getPlayers()) {
+                user.getActions().sendMessage("&7&l> &fGame started! &7Teleporting you to the game arena.");
+                user.getActions().teleport(location);
+            }
+
+            return session;
+        }, MineManiaTNTRun.getInstance().getMainThreadExecutor());
+    }
+
+    /**
+     * Used to tell the game room the game could not
+     * start and release the arena.
+     * The arena is only released once the preparation
+     * has settled, so nothing is still pasting into it.
+     *
+     * @param throwable The reason the activation failed.
+     */
+    private void fail(@NotNull Throwable throwable) {
+        final CompletableFuture<Void> settled;
+
+        synchronized (this) {
+
+            // Check if the failure has already been handled.
+            if (!this.failed.compareAndSet(false, true)) return;
+            if (this.preparation != null) this.preparation.cancel();
+            settled = this.preparation == null
+                    ? CompletableFuture.completedFuture(null)
+                    : this.preparation.getSettled();
+        }
+
+        MineManiaTNTRun.getInstance().getLogger().warning("Unable to activate arena " + this.arena.getIdentifier() + ": " + throwable);
+
+        settled.thenRunAsync(() -> {
+            this.arena.getGameRoom().ifPresent(gameRoomRecord -> {
+                for (MineManiaUser user : gameRoomRecord.getPlayers()) {
+                    user.getActions().sendMessage("&c&l> &cThe game could not be started. &7Please try again.");
+                }
+            });
+            this.arena.deactivate();
+        }, MineManiaTNTRun.getInstance().getMainThreadExecutor());
+    }
+
+    private void checkNotFailed() {
+        if (this.failed.get()) throw new IllegalStateException("The activation of arena " + this.arena.getIdentifier() + " has already failed.");
+    }
+}
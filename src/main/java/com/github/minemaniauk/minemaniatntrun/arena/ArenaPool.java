@@ -0,0 +1,180 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.arena;
+
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Represents the pool of arenas that are reset
+ * and ready before a game room claims them.
+ * Up to a configured number of idle arenas for each
+ * schematic are prepared in the background, so activating
+ * one of them skips loading and pasting the schematic.
+ * This should only be used on the main server thread.
+ */
+public class ArenaPool {
+
+    private final int warmPerSchematic;
+    private final @NotNull Map<UUID, WarmArena> warmMap;
+
+    /**
+     * Used to create an arena pool.
+     *
+     * @param warmPerSchematic The number of arenas to keep
+     *                         ready for each schematic.
+     */
+    public ArenaPool(int warmPerSchematic) {
+        this.warmPerSchematic = warmPerSchematic;
+        this.warmMap = new HashMap<>();
+    }
+
+    /**
+     * Used to take the preparation of an arena from the pool.
+     * If the arena was prepared with an old schematic, that
+     * preparation is cancelled and a new one is returned that
+     * starts once the old one has settled.
+     *
+     * @param arena The arena being activated.
+     * @return The started or pending preparation, or empty if
+     * the arena is not in the pool and must be prepared now.
+     */
+    public @NotNull Optional<ArenaPreparation> take(@NotNull TNTArena arena) {
+        final WarmArena warmArena = this.warmMap.remove(arena.getIdentifier());
+        if (warmArena == null) return Optional.empty();
+
+        // Fill the space this arena leaves in the pool.
+        MineManiaTNTRun.getInstance().getMainThreadExecutor().execute(this::refill);
+
+        if (warmArena.isCurrent(arena)) return Optional.of(warmArena.preparation);
+
+        warmArena.preparation.cancel();
+        return Optional.of(new ArenaPreparation(arena, warmArena.preparation.getSettled()));
+    }
+
+    /**
+     * Used to start preparing idle arenas until each
+     * schematic has enough arenas ready.
+     *
+     * @return This instance.
+     */
+    public @NotNull ArenaPool refill() {
+        if (this.warmPerSchematic <= 0) return this;
+
+        // Count the arenas ready for each schematic.
+        final Map<String, Integer> countMap = new HashMap<>();
+        for (WarmArena warmArena : this.warmMap.values()) {
+            countMap.merge(warmArena.schematic, 1, Integer::sum);
+        }
+
+        for (TNTArena arena : MineManiaTNTRun.getInstance().getArenaConfiguration().getAllArenas()) {
+            final String schematic = arena.getOptionalSchematic().orElse(null);
+            if (schematic == null || !arena.hasRegion()) continue;
+            if (this.warmMap.containsKey(arena.getIdentifier())) continue;
+            if (countMap.getOrDefault(schematic, 0) >= this.warmPerSchematic) continue;
+
+            // Check if the arena is in use.
+            if (arena.getGameRoomIdentifier().isPresent()) continue;
+            if (MineManiaTNTRun.getInstance().getSessionManager().getSession(arena.getIdentifier()).isPresent()) continue;
+
+            this.prepare(arena);
+            countMap.merge(schematic, 1, Integer::sum);
+        }
+
+        return this;
+    }
+
+    /**
+     * Used to remove an arena from the pool and
+     * cancel its preparation.
+     *
+     * @param arenaIdentifier The arena's identifier.
+     * @return A future completed once the preparation has settled.
+     */
+    public @NotNull CompletableFuture<Void> remove(@NotNull UUID arenaIdentifier) {
+        final WarmArena warmArena = this.warmMap.remove(arenaIdentifier);
+        if (warmArena == null) return CompletableFuture.completedFuture(null);
+
+        warmArena.preparation.cancel();
+        return warmArena.preparation.getSettled();
+    }
+
+    /**
+     * Used to get the number of arenas in the pool,
+     * including arenas still being prepared.
+     *
+     * @return The number of arenas.
+     */
+    public int getSize() {
+        return this.warmMap.size();
+    }
+
+    private void prepare(@NotNull TNTArena arena) {
+        final WarmArena warmArena = new WarmArena(
+                arena.getSchematic(),
+                MineManiaTNTRun.getInstance().getSchematicCatalogue().getLastModified(arena.getSchematic()),
+                new ArenaPreparation(arena)
+        );
+        this.warmMap.put(arena.getIdentifier(), warmArena);
+
+        // Remove the arena from the pool if it could not be prepared.
+        warmArena.preparation.start().whenComplete((index, throwable) -> {
+            if (throwable == null || warmArena.preparation.isCancelled()) return;
+            MineManiaTNTRun.getInstance().getLogger().warning("Unable to prepare arena " + arena.getIdentifier() + " for the pool: " + throwable);
+            MineManiaTNTRun.getInstance().getMainThreadExecutor().execute(
+                    () -> this.warmMap.remove(arena.getIdentifier(), warmArena)
+            );
+        });
+    }
+
+    /**
+     * Represents an arena that is prepared or being prepared.
+     */
+    private static class WarmArena {
+
+        private final @NotNull String schematic;
+        private final long lastModified;
+        private final @NotNull ArenaPreparation preparation;
+
+        private WarmArena(@NotNull String schematic, long lastModified, @NotNull ArenaPreparation preparation) {
+            this.schematic = schematic;
+            this.lastModified = lastModified;
+            this.preparation = preparation;
+        }
+
+        /**
+         * Used to check if the arena was prepared with
+         * the schematic it uses now.
+         *
+         * @param arena The instance of the arena.
+         * @return True if the preparation is still valid.
+         */
+        private boolean isCurrent(@NotNull TNTArena arena) {
+            if (!this.schematic.equals(arena.getOptionalSchematic().orElse(null))) return false;
+            return this.lastModified == MineManiaTNTRun.getInstance().getSchematicCatalogue().getLastModified(this.schematic);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.arena;
+
+import com.github.minemaniauk.minemaniatntrun.BlockKey;
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import com.github.minemaniauk.minemaniatntrun.SchematicCache;
+import com.github.minemaniauk.minemaniatntrun.WorldEditUtility;
+import com.github.minemaniauk.minemaniatntrun.session.TNTBlockIndex;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Represents the preparation of an arena for a game.
+ * Preparation is split into stages that each return a future.
+ * <li>Wait for the previous preparation of the arena to settle.</li>
+ * <li>Load the clipboard asynchronously.</li>
+ * <li>Restore the arena, pasting asynchronously when needed.</li>
+ * <li>Verify the tnt is in the world on the main thread.</li>
+ * A cancelled preparation stops at the next stage, but a paste
+ * that is running is always finished, so anything that changes
+ * the arena afterwards should wait for {@link #getSettled()}.
+ */
+public class ArenaPreparation {
+
+    private static final int VERIFY_SAMPLES = 16;
+
+    private final @NotNull TNTArena arena;
+    private final @NotNull CompletableFuture<?> previous;
+    private final @NotNull AtomicBoolean cancelled;
+    private CompletableFuture<TNTBlockIndex> future;
+
+    /**
+     * Used to create an arena preparation.
+     *
+     * @param arena The arena to prepare.
+     */
+    public ArenaPreparation(@NotNull TNTArena arena) {
+        this(arena, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * Used to create an arena preparation that starts
+     * once a previous preparation has settled.
+     *
+     * @param arena    The arena to prepare.
+     * @param previous The future to wait for.
+     */
+    public ArenaPreparation(@NotNull TNTArena arena, @NotNull CompletableFuture<?> previous) {
+        this.arena = arena;
+        this.previous = previous;
+        this.cancelled = new AtomicBoolean(false);
+    }
+
+    /**
+     * Used to start preparing the arena.
+     * Calling this again returns the same future.
+     *
+     * @return A future completed with the index of the tnt in the arena.
+     */
+    public synchronized @NotNull CompletableFuture<TNTBlockIndex> start() {
+        if (this.future != null) return this.future;
+
+        this.future = this.previous.handle((result, throwable) -> null)
+                .thenCompose(ignored -> this.loadClipboard())
+                .thenCompose(this::restore)
+                .thenCompose(index -> ArenaPreparation.verify(this.arena, index));
+        return this.future;
+    }
+
+    /**
+     * Used to stop the preparation at the next stage.
+     */
+    public void cancel() {
+        this.cancelled.set(true);
+    }
+
+    /**
+     * Used to check if the preparation has been cancelled.
+     *
+     * @return True if it has been cancelled.
+     */
+    public boolean isCancelled() {
+        return this.cancelled.get();
+    }
+
+    /**
+     * Used to get a future completed once nothing from
+     * this preparation is still changing the arena.
+     *
+     * @return The future, which never completes exceptionally.
+     */
+    public synchronized @NotNull CompletableFuture<Void> getSettled() {
+        final CompletableFuture<?> current = this.future == null ? this.previous : this.future;
+        return current.handle((result, throwable) -> null);
+    }
+
+    /**
+     * Used to load the arena's schematic.
+     *
+     * @return A future completed with the lease of the clipboard.
+     */
+    private @NotNull CompletableFuture<SchematicCache.Lease> loadClipboard() {
+        return CompletableFuture.supplyAsync(() -> {
+            this.checkNotCancelled();
+
+            // Check if the schematic has been provided.
+            if (!this.arena.getOptionalSchematic().map(WorldEditUtility::hasSchematic).orElse(false)) {
+                throw new IllegalStateException("Couldn't not find schematic {" + this.arena.getOptionalSchematic().orElse(null) + "} for " + this.arena.getIdentifier());
+            }
+
+            SchematicCache.Lease lease = WorldEditUtility.getSchematic(this.arena.getSchematic());
+            if (lease == null) {
+                throw new IllegalStateException("Couldn't not read schematic {" + this.arena.getSchematic() + "} for " + this.arena.getIdentifier());
+            }
+
+            return lease;
+        }, MineManiaTNTRun.getInstance().getAsyncExecutor());
+    }
+
+    /**
+     * Used to restore the arena and index the tnt it contains.
+     * The lease is closed once the clipboard is no longer used.
+     *
+     * @param lease The lease of the arena's schematic.
+     * @return A future completed with the tnt index.
+     */
+    private @NotNull CompletableFuture<TNTBlockIndex> restore(@NotNull SchematicCache.Lease lease) {
+        final Clipboard clipboard = lease.getClipboard();
+
+        return CompletableFuture.completedFuture(clipboard)
+                .thenCompose(ignored -> {
+                    this.checkNotCancelled();
+                    return MineManiaTNTRun.getInstance()
+                            .getArenaRestoreManager()
+                            .restore(this.arena, clipboard);
+                })
+                .thenApplyAsync(
+                        replayed -> new TNTBlockIndex().build(clipboard, this.arena.getPastePoint()),
+                        MineManiaTNTRun.getInstance().getAsyncExecutor()
+                )
+                .whenComplete((index, throwable) -> lease.close());
+    }
+
+    private void checkNotCancelled() {
+        if (this.cancelled.get()) throw new IllegalStateException("The preparation of arena " + this.arena.getIdentifier() + " has been cancelled.");
+    }
+
+    /**
+     * Used to check that the tnt is in the world.
+     *
+     * @param arena The instance of the arena.
+     * @param index The index of the tnt that should be there.
+     * @return A future completed with the tnt index.
+     */
+    public static @NotNull CompletableFuture<TNTBlockIndex> verify(@NotNull TNTArena arena, @NotNull TNTBlockIndex index) {
+        return CompletableFuture.supplyAsync(() -> {
+            final World world = arena.getRegion().getMinPoint().getWorld();
+            if (world == null) throw new IllegalStateException("The world of arena " + arena.getIdentifier() + " is not loaded.");
+            if (index.size() == 0) throw new IllegalStateException("The schematic of arena " + arena.getIdentifier() + " contains no tnt.");
+
+            // Check a spread of the indexed tnt.
+            final long[] keys = index.sample(VERIFY_SAMPLES);
+            for (long key : keys) {
+                if (world.getBlockAt(BlockKey.getX(key), BlockKey.getY(key), BlockKey.getZ(key)).getType() == Material.TNT) continue;
+                throw new IllegalStateException("The paste of arena " + arena.getIdentifier() + " could not be verified.");
+            }
+
+            return index;
+        }, MineManiaTNTRun.getInstance().getMainThreadExecutor());
+    }
+}
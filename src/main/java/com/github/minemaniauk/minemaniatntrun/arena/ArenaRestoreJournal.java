@@ -0,0 +1,170 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.arena;
+
+import com.github.minemaniauk.minemaniatntrun.BlockKey;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents a journal of the blocks changed in an arena
+ * since it was last pasted. Positions are stored as packed
+ * keys and the original block data as palette indexes.
+ */
+public class ArenaRestoreJournal {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private long[] positions;
+    private int[] paletteIndexes;
+    private int size;
+    private final @NotNull List<BlockData> palette;
+    private final @NotNull Map<BlockData, Integer> paletteMap;
+
+    private @Nullable String schematic;
+    private long schematicLastModified;
+    private @Nullable String worldName;
+    private long pasteKey;
+
+    /**
+     * Used to create an empty restore journal.
+     */
+    public ArenaRestoreJournal() {
+        this.positions = new long[DEFAULT_CAPACITY];
+        this.paletteIndexes = new int[DEFAULT_CAPACITY];
+        this.palette = new ArrayList<>();
+        this.paletteMap = new HashMap<>();
+    }
+
+    /**
+     * Used to start a new journal after the
+     * arena has been pasted or restored.
+     *
+     * @param schematic             The schematic identifier.
+     * @param schematicLastModified When the schematic was last modified.
+     * @param location              The location the schematic was pasted to.
+     * @return This instance.
+     */
+    public synchronized @NotNull ArenaRestoreJournal begin(@NotNull String schematic, long schematicLastModified, @NotNull Location location) {
+        this.clear();
+        this.schematic = schematic;
+        this.schematicLastModified = schematicLastModified;
+        this.worldName = location.getWorld() == null ? null : location.getWorld().getName();
+        this.pasteKey = BlockKey.pack(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        return this;
+    }
+
+    /**
+     * Used to check if replaying this journal would
+     * restore the same paste.
+     *
+     * @param schematic             The schematic identifier.
+     * @param schematicLastModified When the schematic was last modified.
+     * @param location              The location the schematic will be pasted to.
+     * @return True if the journal can be replayed.
+     */
+    public synchronized boolean canReplay(@NotNull String schematic, long schematicLastModified, @NotNull Location location) {
+        return this.worldName != null
+                && schematic.equals(this.schematic)
+                && schematicLastModified == this.schematicLastModified
+                && location.getWorld() != null
+                && location.getWorld().getName().equals(this.worldName)
+                && BlockKey.pack(location.getBlockX(), location.getBlockY(), location.getBlockZ()) == this.pasteKey;
+    }
+
+    /**
+     * Used to record a block before it is changed.
+     *
+     * @param block The block that will be changed.
+     * @return This instance.
+     */
+    public synchronized @NotNull ArenaRestoreJournal record(@NotNull Block block) {
+
+        // Grow the journal if it is full.
+        if (this.size == this.positions.length) {
+            this.positions = Arrays.copyOf(this.positions, this.size * 2);
+            this.paletteIndexes = Arrays.copyOf(this.paletteIndexes, this.size * 2);
+        }
+
+        final BlockData blockData = block.getBlockData();
+        Integer paletteIndex = this.paletteMap.get(blockData);
+        if (paletteIndex == null) {
+            paletteIndex = this.palette.size();
+            this.palette.add(blockData);
+            this.paletteMap.put(blockData, paletteIndex);
+        }
+
+        this.positions[this.size] = BlockKey.pack(block.getX(), block.getY(), block.getZ());
+        this.paletteIndexes[this.size] = paletteIndex;
+        this.size++;
+        return this;
+    }
+
+    /**
+     * Used to write the original blocks back into the world.
+     * The newest entries are written first, so a block changed
+     * twice ends up with the data it had when it was pasted.
+     *
+     * @param world The world the arena is in.
+     * @return The number of blocks written.
+     */
+    public synchronized int replay(@NotNull World world) {
+        for (int index = this.size - 1; index >= 0; index--) {
+            final long key = this.positions[index];
+            world.getBlockAt(BlockKey.getX(key), BlockKey.getY(key), BlockKey.getZ(key))
+                    .setBlockData(this.palette.get(this.paletteIndexes[index]), false);
+        }
+        return this.size;
+    }
+
+    /**
+     * Used to remove every entry and forget the paste,
+     * so the next restore will be a full paste.
+     *
+     * @return This instance.
+     */
+    public synchronized @NotNull ArenaRestoreJournal clear() {
+        this.size = 0;
+        this.palette.clear();
+        this.paletteMap.clear();
+        this.schematic = null;
+        this.worldName = null;
+        return this;
+    }
+
+    /**
+     * Used to get the number of changed blocks recorded.
+     *
+     * @return The number of entries.
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.arena;
+
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import com.github.minemaniauk.minemaniatntrun.WorldEditUtility;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Represents the arena restore manager.
+ * Keeps a journal for each arena and uses it to
+ * restore only the blocks changed in the last game.
+ */
+public class ArenaRestoreManager {
+
+    private final @NotNull ArenaRestoreMode mode;
+    private final @NotNull Map<UUID, ArenaRestoreJournal> journalMap;
+
+    /**
+     * Used to create an arena restore manager.
+     *
+     * @param mode The way arenas should be restored.
+     */
+    public ArenaRestoreManager(@NotNull ArenaRestoreMode mode) {
+        this.mode = mode;
+        this.journalMap = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Used to get the journal of an arena.
+     *
+     * @param arenaIdentifier The arena's identifier.
+     * @return The arena's restore journal.
+     */
+    public @NotNull ArenaRestoreJournal getJournal(@NotNull UUID arenaIdentifier) {
+        return this.journalMap.computeIfAbsent(arenaIdentifier, identifier -> new ArenaRestoreJournal());
+    }
+
+    /**
+     * Used to forget the journal of an arena
+     * that no longer exists.
+     *
+     * @param arenaIdentifier The arena's identifier.
+     * @return This instance.
+     */
+    public @NotNull ArenaRestoreManager removeJournal(@NotNull UUID arenaIdentifier) {
+        this.journalMap.remove(arenaIdentifier);
+        return this;
+    }
+
+    /**
+     * Used to restore an arena to its schematic.
+     * The journal is replayed on the main thread when it
+     * matches the paste, otherwise the whole clipboard is
+     * pasted asynchronously through world edit.
+     *
+     * @param arena     The instance of the arena.
+     * @param clipboard The arena's schematic.
+     * @return A future completed with true if only the journal was replayed.
+     */
+    public @NotNull CompletableFuture<Boolean> restore(@NotNull TNTArena arena, @NotNull Clipboard clipboard) {
+        final Location location = arena.getPastePoint();
+        final String schematic = arena.getSchematic();
+        final long lastModified = MineManiaTNTRun.getInstance().getSchematicCatalogue().getLastModified(schematic);
+        final ArenaRestoreJournal journal = this.getJournal(arena.getIdentifier());
+
+        // Check if the journal can be replayed.
+        if (this.mode == ArenaRestoreMode.DIFFERENTIAL
+                && location.getWorld() != null
+                && journal.canReplay(schematic, lastModified, location)) {
+
+            return CompletableFuture.supplyAsync(() -> {
+                journal.replay(location.getWorld());
+                journal.begin(schematic, lastModified, location);
+                return true;
+            }, MineManiaTNTRun.getInstance().getMainThreadExecutor());
+        }
+
+        // Forget the old journal in case the paste fails.
+        journal.clear();
+
+        return CompletableFuture.supplyAsync(() -> {
+            WorldEditUtility.pasteClipboard(location, clipboard);
+            journal.begin(schematic, lastModified, location);
+            return false;
+        }, MineManiaTNTRun.getInstance().getAsyncExecutor());
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.arena;
+
+import com.github.cozyplugins.cozylibrary.location.Region3D;
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Represents a spatial index of arena regions.
+ * Each world maps chunk keys to the arenas that overlap
+ * the chunk, so finding the arena at a location only
+ * checks the arenas in that chunk.
+ */
+public class ArenaSpatialIndex {
+
+    private final @NotNull Map<String, Map<Long, List<Entry>>> worldMap;
+    private final @NotNull Map<UUID, Entry> entryMap;
+
+    /**
+     * Used to create an empty arena spatial index.
+     */
+    public ArenaSpatialIndex() {
+        this.worldMap = new HashMap<>();
+        this.entryMap = new HashMap<>();
+    }
+
+    /**
+     * Used to replace the contents of the index.
+     *
+     * @param arenaList The arenas to index.
+     * @return This instance.
+     */
+    public synchronized @NotNull ArenaSpatialIndex rebuild(@NotNull Collection<TNTArena> arenaList) {
+        this.worldMap.clear();
+        this.entryMap.clear();
+
+        for (TNTArena arena : arenaList) {
+            this.update(arena);
+        }
+
+        return this;
+    }
+
+    /**
+     * Used to add or move an arena in the index.
+     * Nothing changes if the region is the same.
+     *
+     * @param arena The instance of the arena.
+     * @return This instance.
+     */
+    public synchronized @NotNull ArenaSpatialIndex update(@NotNull TNTArena arena) {
+        final Region3D region = arena.hasRegion() ? arena.getRegion() : null;
+        final Entry previous = this.entryMap.get(arena.getIdentifier());
+
+        // Check if the region has not changed.
+        if (previous != null && region != null && previous.hasSameBounds(region)) return this;
+
+        this.remove(arena.getIdentifier());
+        if (region == null || region.getMinPoint().getWorld() == null) return this;
+
+        final Entry entry = new Entry(arena.getIdentifier(), region);
+        this.entryMap.put(entry.identifier, entry);
+
+        final Map<Long, List<Entry>> chunkMap = this.worldMap.computeIfAbsent(entry.worldName, name -> new HashMap<>());
+        for (int chunkX = entry.minChunkX; chunkX <= entry.maxChunkX; chunkX++) {
+            for (int chunkZ = entry.minChunkZ; chunkZ <= entry.maxChunkZ; chunkZ++) {
+                chunkMap.computeIfAbsent(ArenaSpatialIndex.getChunkKey(chunkX, chunkZ), key -> new ArrayList<>(1)).add(entry);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Used to remove an arena from the index.
+     *
+     * @param identifier The arena's identifier.
+     * @return This instance.
+     */
+    public synchronized @NotNull ArenaSpatialIndex remove(@NotNull UUID identifier) {
+        final Entry entry = this.entryMap.remove(identifier);
+        if (entry == null) return this;
+
+        final Map<Long, List<Entry>> chunkMap = this.worldMap.get(entry.worldName);
+        if (chunkMap == null) return this;
+
+        for (int chunkX = entry.minChunkX; chunkX <= entry.maxChunkX; chunkX++) {
+            for (int chunkZ = entry.minChunkZ; chunkZ <= entry.maxChunkZ; chunkZ++) {
+                final long key = ArenaSpatialIndex.getChunkKey(chunkX, chunkZ);
+                final List<Entry> entryList = chunkMap.get(key);
+                if (entryList == null) continue;
+                entryList.remove(entry);
+                if (entryList.isEmpty()) chunkMap.remove(key);
+            }
+        }
+
+        if (chunkMap.isEmpty()) this.worldMap.remove(entry.worldName);
+        return this;
+    }
+
+    /**
+     * Used to get the identifier of the arena
+     * that contains a location.
+     *
+     * @param location The location inside an arena.
+     * @return The optional arena identifier.
+     */
+    public synchronized @NotNull Optional<UUID> getArenaIdentifier(@NotNull Location location) {
+        final World world = location.getWorld();
+        if (world == null) return Optional.empty();
+
+        final Map<Long, List<Entry>> chunkMap = this.worldMap.get(world.getName());
+        if (chunkMap == null) return Optional.empty();
+
+        final List<Entry> entryList = chunkMap.get(ArenaSpatialIndex.getChunkKey(
+                location.getBlockX() >> 4, location.getBlockZ() >> 4
+        ));
+        if (entryList == null) return Optional.empty();
+
+        for (Entry entry : entryList) {
+            if (entry.region.contains(location)) return Optional.of(entry.identifier);
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Used to get the arena that contains a location.
+     *
+     * @param location The location inside an arena.
+     * @return The optional arena.
+     */
+    public @NotNull Optional<TNTArena> getArena(@NotNull Location location) {
+        return this.getArenaIdentifier(location).flatMap(
+                identifier -> MineManiaTNTRun.getInstance()
+                        .getArenaConfiguration()
+                        .getArena(identifier.toString())
+        );
+    }
+
+    private static long getChunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Represents an arena region in the index.
+     */
+    private static class Entry {
+
+        private final @NotNull UUID identifier;
+        private final @NotNull Region3D region;
+        private final @NotNull String worldName;
+        private final int minChunkX;
+        private final int minChunkZ;
+        private final int maxChunkX;
+        private final int maxChunkZ;
+
+        private Entry(@NotNull UUID identifier, @NotNull Region3D region) {
+            this.identifier = identifier;
+            this.region = region;
+            this.worldName = region.getMinPoint().getWorld().getName();
+            this.minChunkX = region.getMinPoint().getBlockX() >> 4;
+            this.minChunkZ = region.getMinPoint().getBlockZ() >> 4;
+            this.maxChunkX = region.getMaxPoint().getBlockX() >> 4;
+            this.maxChunkZ = region.getMaxPoint().getBlockZ() >> 4;
+        }
+
+        private boolean hasSameBounds(@Nullable Region3D region) {
+            return region != null
+                    && region.getMinPoint().equals(this.region.getMinPoint())
+                    && region.getMaxPoint().equals(this.region.getMaxPoint());
+        }
+    }
+}
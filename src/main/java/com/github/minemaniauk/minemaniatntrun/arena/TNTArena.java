@@ -23,24 +23,21 @@ import com.github.cozyplugins.cozylibrary.indicator.LocationConvertable;
 import com.github.cozyplugins.cozylibrary.indicator.Savable;
 import com.github.cozyplugins.cozylibrary.item.CozyItem;
 import com.github.cozyplugins.cozylibrary.location.Region3D;
-import com.github.minemaniauk.api.MineManiaLocation;
 import com.github.minemaniauk.api.game.Arena;
 import com.github.minemaniauk.api.game.GameType;
-import com.github.minemaniauk.api.user.MineManiaUser;
-import com.github.minemaniauk.bukkitapi.BukkitLocationConverter;
 import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
-import com.github.minemaniauk.minemaniatntrun.WorldEditUtility;
-import com.github.minemaniauk.minemaniatntrun.session.TNTSession;
+import com.github.minemaniauk.minemaniatntrun.instance.ArenaInstanceAllocator;
 import com.github.smuddgge.squishyconfiguration.indicator.ConfigurationConvertable;
 import com.github.smuddgge.squishyconfiguration.interfaces.ConfigurationSection;
 import com.github.smuddgge.squishyconfiguration.memory.MemoryConfigurationSection;
-import com.sk89q.worldedit.extent.clipboard.Clipboard;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
 import java.util.LinkedHashMap;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
@@ -50,7 +47,10 @@ public class TNTArena extends Arena implements ConfigurationConvertable<TNTArena
 
     private @Nullable Region3D region;
     private @Nullable Location spawnPoint;
+    private @Nullable Location pastePoint;
     private @Nullable String schematic;
+    private @Nullable String instanceTemplate;
+    private int instanceSlot = -1;
 
     /**
      * Used to create a new instance of a tnt run arena.
@@ -74,6 +74,15 @@ public class TNTArena extends Arena implements ConfigurationConvertable<TNTArena
         return this.region;
     }
 
+    /**
+     * Used to check if the region of the arena has been set.
+     *
+     * @return True if the region has been set.
+     */
+    public boolean hasRegion() {
+        return this.region != null;
+    }
+
     /**
      * Used to get the spawn point of the arena.
      *
@@ -89,6 +98,18 @@ public class TNTArena extends Arena implements ConfigurationConvertable<TNTArena
         return this.spawnPoint;
     }
 
+    /**
+     * Used to get where the schematic's origin is pasted.
+     * This is the lowest corner of the region unless
+     * it has been set, such as for instances.
+     *
+     * @return The paste location.
+     */
+    public @NotNull Location getPastePoint() {
+        if (this.pastePoint != null) return this.pastePoint;
+        return this.getRegion().getMinPoint();
+    }
+
     /**
      * Used to get the arenas schematic.
      * This schematic will be pasted before teleporting
@@ -106,6 +127,15 @@ public class TNTArena extends Arena implements ConfigurationConvertable<TNTArena
         return this.schematic;
     }
 
+    /**
+     * Used to get the arenas schematic if it has been set.
+     *
+     * @return The optional schematic identifier.
+     */
+    public @NotNull Optional<String> getOptionalSchematic() {
+        return Optional.ofNullable(this.schematic);
+    }
+
     /**
      * Used to set the region of the arena.
      *
@@ -128,6 +158,17 @@ public class TNTArena extends Arena implements ConfigurationConvertable<TNTArena
         return this;
     }
 
+    /**
+     * Used to set where the schematic's origin is pasted.
+     *
+     * @param pastePoint The paste location.
+     * @return This instance.
+     */
+    public @NotNull TNTArena setPastePoint(@NotNull Location pastePoint) {
+        this.pastePoint = pastePoint;
+        return this;
+    }
+
     /**
      * Used to set the schematic that should be used.
      *
@@ -155,6 +196,48 @@ public class TNTArena extends Arena implements ConfigurationConvertable<TNTArena
         return this;
     }
 
+    /**
+     * Used to get the template this arena was stamped from,
+     * if it is an instance.
+     *
+     * @return The optional template identifier.
+     */
+    public @NotNull Optional<String> getInstanceTemplate() {
+        return Optional.ofNullable(this.instanceTemplate);
+    }
+
+    /**
+     * Used to get the slot this arena was stamped into.
+     *
+     * @return The slot or -1 if it is not an instance.
+     */
+    public int getInstanceSlot() {
+        return this.instanceSlot;
+    }
+
+    /**
+     * Used to check if this arena was stamped from a template.
+     *
+     * @return True if this arena is an instance.
+     */
+    public boolean isInstance() {
+        return this.instanceTemplate != null;
+    }
+
+    /**
+     * Used to set the template and slot
+     * this arena was stamped from.
+     *
+     * @param template The template identifier.
+     * @param slot     The slot in the instance world.
+     * @return This instance.
+     */
+    public @NotNull TNTArena setInstance(@NotNull String template, int slot) {
+        this.instanceTemplate = template;
+        this.instanceSlot = slot;
+        return this;
+    }
+
     @Override
     public void activate() {
         try {
@@ -166,29 +249,18 @@ public class TNTArena extends Arena implements ConfigurationConvertable<TNTArena
                 return;
             }
 
-            MineManiaTNTRun.getInstance()
-                    .getSessionManager()
-                    .registerSession(new TNTSession(this.getIdentifier()));
+            // Restore the arena and start the session.
+            new ArenaActivation(this, Duration.ofSeconds(
+                    MineManiaTNTRun.getInstance().getConfig().getLong("arena_activation.timeout_seconds", 30)
+            )).start();
 
-            // Check if the schematic has been provided.
-            if (this.schematic == null || !WorldEditUtility.getSchematicList().contains(this.getSchematic())) {
-                MineManiaTNTRun.getInstance().getLogger().warning("Couldn't not find schematic {" + this.schematic + "} for " + this.getIdentifier());
-                return;
+            // Stamp another instance if this was the last free one.
+            if (this.isInstance()) {
+                MineManiaTNTRun.getInstance().getMainThreadExecutor().execute(
+                        () -> MineManiaTNTRun.getInstance().getInstanceAllocator().ifPresent(ArenaInstanceAllocator::balance)
+                );
             }
 
-            // Paste the schematic.
-            Clipboard clipboard = WorldEditUtility.getSchematic(this.getSchematic());
-            WorldEditUtility.pasteClipboard(this.getRegion().getMinPoint(), clipboard);
-
-            // Get spawn point as a mine mania location.
-            MineManiaLocation location = new BukkitLocationConverter()
-                    .getMineManiaLocation(this.getSpawnPoint());
-
-            // Teleport the players.
-            for (MineManiaUser user : this.getGameRoom().get().getPlayers()) {
-                user.getActions().sendMessage("&7&l> &fGame started! &7Teleporting you to the game arena.");
-                user.getActions().teleport(location);
-            }
         } catch (Exception exception) {
             exception.printStackTrace();
         }
@@ -202,8 +274,18 @@ public class TNTArena extends Arena implements ConfigurationConvertable<TNTArena
                 .getSession(this.getIdentifier())
                 .ifPresent(session -> {
                     session.stopComponents();
+                    MineManiaTNTRun.getInstance().getMembershipTracker().unregister(session);
                     MineManiaTNTRun.getInstance().getSessionManager().unregisterSession(session);
+                    MineManiaTNTRun.getInstance().getTimings().remove(this.getIdentifier());
                 });
+
+        // Start resetting arenas for the next game.
+        MineManiaTNTRun.getInstance().getMainThreadExecutor().execute(() -> {
+            if (this.isInstance()) {
+                MineManiaTNTRun.getInstance().getInstanceAllocator().ifPresent(allocator -> allocator.release(this));
+            }
+            MineManiaTNTRun.getInstance().getArenaPool().refill();
+        });
     }
 
     @Override
@@ -221,7 +303,12 @@ public class TNTArena extends Arena implements ConfigurationConvertable<TNTArena
 
         section.set("region", this.getRegion().convert().getMap());
         if (this.spawnPoint != null) section.set("spawn_point", this.convertLocation(this.spawnPoint));
+        if (this.pastePoint != null) section.set("paste_point", this.convertLocation(this.pastePoint));
         if (this.schematic != null) section.set("schematic", this.getSchematic());
+        if (this.instanceTemplate != null) {
+            section.set("instance_template", this.instanceTemplate);
+            section.set("instance_slot", this.instanceSlot);
+        }
 
         return section;
     }
@@ -239,7 +326,11 @@ public class TNTArena extends Arena implements ConfigurationConvertable<TNTArena
         this.setRegion(new Region3D(section.getSection("region")));
         if (section.getKeys().contains("spawn_point"))
             this.setSpawnPoint(this.convertLocation(section.getSection("spawn_point")));
+        if (section.getKeys().contains("paste_point"))
+            this.setPastePoint(this.convertLocation(section.getSection("paste_point")));
         if (section.getKeys().contains("schematic")) this.setSchematic(section.getString("schematic"));
+        if (section.getKeys().contains("instance_template"))
+            this.setInstance(section.getString("instance_template"), section.getInteger("instance_slot"));
         return this;
     }
 
@@ -249,8 +340,8 @@ public class TNTArena extends Arena implements ConfigurationConvertable<TNTArena
         // Save the api.
         super.save();
 
-        // Save to local storage.
-        MineManiaTNTRun.getInstance().getArenaConfiguration()
-                .insertType(this.getIdentifier().toString(), this);
+        // Queue the arena to be saved to local storage.
+        MineManiaTNTRun.getInstance().getArenaConfiguration().persist(this);
+        MineManiaTNTRun.getInstance().getArenaIndex().update(this);
     }
 }
@@ -35,6 +35,6 @@ public class TNTArenaFactory implements Session.ArenaFactory<TNTArena> {
     public @NotNull Optional<TNTArena> getArena(@NotNull UUID uuid) {
         return MineManiaTNTRun.getInstance()
                 .getArenaConfiguration()
-                .getType(uuid.toString());
+                .getArena(uuid.toString());
     }
 }
@@ -0,0 +1,153 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.commands;
+
+import com.github.cozyplugins.cozylibrary.command.command.command.CondensedCommand;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandArguments;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandCredentials;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandStatus;
+import com.github.cozyplugins.cozylibrary.command.datatype.CommandSuggestions;
+import com.github.cozyplugins.cozylibrary.user.ConsoleUser;
+import com.github.cozyplugins.cozylibrary.user.FakeUser;
+import com.github.cozyplugins.cozylibrary.user.PlayerUser;
+import com.github.cozyplugins.cozylibrary.user.User;
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import com.github.minemaniauk.minemaniatntrun.SchematicCache;
+import com.github.minemaniauk.minemaniatntrun.session.SessionTicker;
+import com.github.minemaniauk.minemaniatntrun.session.TaskPriority;
+import com.github.minemaniauk.minemaniatntrun.timing.TimingHistogram;
+import com.github.minemaniauk.minemaniatntrun.timing.TimingRegistry;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Used to show how long each session component
+ * loop takes in each arena, how much the
+ * loops are backing off and how well the
+ * schematic cache is working.
+ */
+public class TimingsCommand implements CondensedCommand {
+
+    @Override
+    public @Nullable CommandCredentials getCredentials() {
+        return new CommandCredentials()
+                .setDescription("Used to show the session component timings.")
+                .setSyntax("/tntrun timings [reset]")
+                .addPermission("tntrun.admin");
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return "timings";
+    }
+
+    @Override
+    public @Nullable CommandSuggestions getSuggestions(@NotNull User user, @NotNull CommandArguments commandArguments) {
+        return new CommandSuggestions().append(List.of("reset"));
+    }
+
+    @Override
+    public @Nullable CommandStatus onUser(@NotNull User user, @NotNull CommandArguments commandArguments) {
+        return null;
+    }
+
+    @Override
+    public @Nullable CommandStatus onPlayerUser(@NotNull PlayerUser user, @NotNull CommandArguments arguments, @NotNull CommandStatus status) {
+        user.sendMessage(this.run(arguments));
+        return new CommandStatus();
+    }
+
+    @Override
+    public @Nullable CommandStatus onFakeUser(@NotNull FakeUser fakeUser, @NotNull CommandArguments commandArguments, @NotNull CommandStatus commandStatus) {
+        return null;
+    }
+
+    @Override
+    public @Nullable CommandStatus onConsoleUser(@NotNull ConsoleUser consoleUser, @NotNull CommandArguments arguments, @NotNull CommandStatus status) {
+        for (String line : this.run(arguments)) {
+            consoleUser.sendMessage(line);
+        }
+        return new CommandStatus();
+    }
+
+    /**
+     * Used to reset the timings or list them.
+     *
+     * @param arguments The command arguments.
+     * @return The lines to send.
+     */
+    private @NotNull List<String> run(@NotNull CommandArguments arguments) {
+        final TimingRegistry timings = MineManiaTNTRun.getInstance().getTimings();
+
+        // Check if the timings should be reset.
+        if (!arguments.getArguments().isEmpty() && arguments.getArguments().get(0).equalsIgnoreCase("reset")) {
+            timings.reset();
+            return List.of("&7&l> &7The timings have been reset.");
+        }
+
+        final List<String> lines = new ArrayList<>();
+        lines.add("&8&l------------] &e&lTNT RUN TIMINGS &8&l[------------");
+
+        // Show how much the loops are backing off.
+        final SessionTicker ticker = MineManiaTNTRun.getInstance().getSessionTicker();
+        lines.add("&7Tick &f" + String.format("%.1fms", ticker.getAverageMillis())
+                + " &7back-off level &f" + ticker.getLevel()
+                + " &7normal &fx" + ticker.getBackOff(TaskPriority.NORMAL)
+                + " &7low &fx" + ticker.getBackOff(TaskPriority.LOW)
+        );
+
+        // Show if schematics are being loaded from the cache.
+        final SchematicCache cache = MineManiaTNTRun.getInstance().getSchematicCache();
+        lines.add("&7Schematic hits &f" + cache.getHits()
+                + " &7misses &f" + cache.getMisses()
+                + " &7load &f" + TimingsCommand.format(cache.getMisses() == 0 ? 0 : cache.getLoadNanos() / cache.getMisses())
+                + " &7evictions &f" + cache.getEvictions()
+                + " &7memory &f" + (cache.getUsedBytes() >> 20) + "/" + (cache.getMaxBytes() >> 20) + "MB"
+        );
+
+        for (Map.Entry<String, Map<UUID, TimingHistogram>> component : timings.getHistogramMap().entrySet()) {
+            lines.add("&e" + component.getKey());
+
+            for (Map.Entry<UUID, TimingHistogram> arena : component.getValue().entrySet()) {
+                final TimingHistogram histogram = arena.getValue();
+                if (histogram.getCount() == 0) continue;
+
+                lines.add("&7- &f" + arena.getKey().toString().substring(0, 7)
+                        + " &7p50 &f" + TimingsCommand.format(histogram.getPercentile(50))
+                        + " &7p99 &f" + TimingsCommand.format(histogram.getPercentile(99))
+                        + " &7max &f" + TimingsCommand.format(histogram.getMaxNanos())
+                        + " &7tick &f" + String.format("%.2f%%", histogram.getTickShare() * 100)
+                );
+            }
+        }
+
+        if (lines.size() == 3) lines.add("&7No component loops have run yet.");
+        return lines;
+    }
+
+    private static @NotNull String format(long nanos) {
+        return String.format("%.3fms", nanos / 1_000_000D);
+    }
+}
@@ -87,7 +87,7 @@ public class ArenaSetSchematicCommand implements CozyCommand {
         final String schematic = commandArguments.getArguments().get(0);
 
         // Check if the schematic exists.
-        if (!WorldEditUtility.getSchematicList().contains(schematic)) {
+        if (!WorldEditUtility.hasSchematic(schematic)) {
             user.sendMessage("&c&l> &cThat is not a valid schematic.");
             return new CommandStatus();
         }
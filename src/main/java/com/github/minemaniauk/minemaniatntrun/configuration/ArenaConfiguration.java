@@ -19,67 +19,168 @@
 
 package com.github.minemaniauk.minemaniatntrun.configuration;
 
-import com.github.cozyplugins.cozylibrary.configuration.SingleTypeConfigurationDirectory;
 import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
 import com.github.minemaniauk.minemaniatntrun.arena.TNTArena;
+import com.github.smuddgge.squishyconfiguration.memory.MemoryConfigurationSection;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
- * Represents an arena configuration directory.
+ * Represents the arenas stored in the arenas folder.
+ * Every arena is kept in one file, written by the
+ * arena persistence writer, which is the only thing
+ * that reads or writes the folder.
  */
-public class ArenaConfiguration extends SingleTypeConfigurationDirectory<TNTArena> {
+public class ArenaConfiguration {
+
+    private final @NotNull ArenaPersistenceWriter writer;
+    private final @NotNull ArenaRegistrationSync registrationSync;
 
     /**
-     * Used to create an arena configuration directory.
+     * Used to create an arena configuration.
      */
     public ArenaConfiguration() {
-        super("arenas", MineManiaTNTRun.class);
+        this.writer = new ArenaPersistenceWriter(
+                new File(new File(MineManiaTNTRun.getInstance().getDataFolder(), "arenas"), "arenas.yml"),
+                MineManiaTNTRun.getInstance().getConfig().getLong("arena_persistence.debounce_ticks", 40)
+        );
+        this.registrationSync = new ArenaRegistrationSync();
     }
 
-    @Override
-    public @Nullable String getDefaultFileName() {
-        return "arenas.yml";
-    }
+    /**
+     * Used to load the arenas from the arenas folder.
+     * Arenas in other files in the folder are
+     * moved into the arena file.
+     *
+     * @return This instance.
+     */
+    public @NotNull ArenaConfiguration reload() {
+        final List<TNTArena> arenaList = new ArrayList<>();
 
-    @Override
-    protected void onReload() {
+        for (Map.Entry<String, Map<String, Object>> entry : this.writer.read().entrySet()) {
+            try {
+                arenaList.add(this.createEmpty(entry.getKey()).convert(new MemoryConfigurationSection(entry.getValue())));
+            } catch (RuntimeException exception) {
+                MineManiaTNTRun.getInstance().getLogger().warning("Unable to load arena {" + entry.getKey() + "}: " + exception);
+            }
+        }
 
+        this.writer.seed(arenaList);
+        this.writer.migrate();
+        return this;
     }
 
-    @Override
+    /**
+     * Used to create an arena with no content.
+     *
+     * @param identifier The arena's identifier.
+     * @return The arena.
+     */
     public @NotNull TNTArena createEmpty(@NotNull String identifier) {
         return new TNTArena(UUID.fromString(identifier));
     }
 
     /**
-     * Used to update arenas that are registered.
+     * Used to get an arena, including changes
+     * that have not been written yet.
      *
-     * @return This instance.
+     * @param identifier The arena's identifier.
+     * @return The optional arena.
      */
-    public @NotNull ArenaConfiguration reloadRegisteredArenas() {
-        MineManiaTNTRun.getAPI().getGameManager().unregisterLocalArenas();
+    public @NotNull Optional<TNTArena> getArena(@NotNull String identifier) {
+        final Map<String, Object> content = this.writer.getContent(identifier);
+        if (content == null) return Optional.empty();
+        return Optional.of(this.createEmpty(identifier).convert(new MemoryConfigurationSection(content)));
+    }
 
-        for (TNTArena arena : this.getAllTypes()) {
-            MineManiaTNTRun.getAPI().getGameManager().registerArena(arena);
+    /**
+     * Used to get every arena, including changes
+     * that have not been written yet.
+     *
+     * @return The list of arenas.
+     */
+    public @NotNull List<TNTArena> getAllArenas() {
+        final List<TNTArena> arenaList = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : this.writer.getContentMap().entrySet()) {
+            arenaList.add(this.createEmpty(entry.getKey()).convert(new MemoryConfigurationSection(entry.getValue())));
         }
+        return arenaList;
+    }
 
+    /**
+     * Used to queue an arena to be saved to local storage.
+     * Nothing is written if the arena has not changed.
+     *
+     * @param arena The instance of the arena.
+     * @return This instance.
+     */
+    public @NotNull ArenaConfiguration persist(@NotNull TNTArena arena) {
+        this.writer.mark(arena);
+        return this;
+    }
+
+    /**
+     * Used to queue an arena to be removed from local storage.
+     * The game manager is updated on the next registration sync.
+     *
+     * @param identifier The arena's identifier.
+     * @return This instance.
+     */
+    public @NotNull ArenaConfiguration remove(@NotNull UUID identifier) {
+        this.writer.remove(identifier.toString());
+        return this;
+    }
+
+    /**
+     * Used to get the writer that saves
+     * arenas to local storage.
+     *
+     * @return The arena persistence writer.
+     */
+    public @NotNull ArenaPersistenceWriter getWriter() {
+        return this.writer;
+    }
+
+    /**
+     * Used to get the sync between local and registered arenas.
+     *
+     * @return The arena registration sync.
+     */
+    public @NotNull ArenaRegistrationSync getRegistrationSync() {
+        return this.registrationSync;
+    }
+
+    /**
+     * Used to update arenas that are registered.
+     * Only the arenas that have changed are registered again.
+     *
+     * @return This instance.
+     */
+    public @NotNull ArenaConfiguration reloadRegisteredArenas() {
+        this.registrationSync.sync(this.getAllArenas());
         return this;
     }
 
     /**
      * Used to reset the game identifiers for each arena.
+     * The arenas are written to local storage once,
+     * after every arena has been reset.
      *
      * @return This instance.
      */
     public @NotNull ArenaConfiguration resetGameIdentifiers() {
-        for (TNTArena arena : this.getAllTypes()) {
+        for (TNTArena arena : this.getAllArenas()) {
             arena.setGameRoomIdentifier(null);
             arena.save();
         }
 
+        this.writer.flush();
         return this;
     }
 }
@@ -0,0 +1,457 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.configuration;
+
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import com.github.minemaniauk.minemaniatntrun.arena.TNTArena;
+import com.github.smuddgge.squishyconfiguration.interfaces.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents the writer that saves arenas to local storage.
+ * Arenas are only queued when their content is different
+ * from what was last written, and the queue is written
+ * in one go after a short delay or on shutdown.
+ * The file is written to a temporary file and moved into
+ * place, so a crash part way through never corrupts it.
+ * The writer keeps the latest content of every arena,
+ * so the file is only read from disk when the plugin starts.
+ * It is the only thing that reads or writes the arenas folder.
+ */
+public class ArenaPersistenceWriter {
+
+    private final @NotNull File file;
+    private final long debounceTicks;
+    private final @NotNull Map<String, Map<String, Object>> pendingMap;
+    private final @NotNull Map<String, Map<String, Object>> writtenMap;
+    private final @NotNull Set<String> removedSet;
+    private final @NotNull List<File> legacyFileList;
+    private final @NotNull Object fileLock;
+    private boolean flushScheduled;
+    private long batchSequence;
+    private long appliedSequence;
+    private long writtenSequence;
+
+    /**
+     * Used to create an arena persistence writer.
+     *
+     * @param file          The arena file to write to.
+     * @param debounceTicks The ticks to wait before writing.
+     */
+    public ArenaPersistenceWriter(@NotNull File file, long debounceTicks) {
+        this.file = file;
+        this.debounceTicks = debounceTicks;
+        this.pendingMap = new LinkedHashMap<>();
+        this.writtenMap = new LinkedHashMap<>();
+        this.removedSet = new LinkedHashSet<>();
+        this.legacyFileList = new ArrayList<>();
+        this.fileLock = new Object();
+    }
+
+    /**
+     * Used to read every arena in the arena file's folder.
+     * Arenas in other yaml files in the folder, which were
+     * used before every arena was kept in one file, are
+     * moved into the arena file by {@link #migrate()}.
+     * The arena file wins if an arena is in more than one file.
+     *
+     * @return The content of each arena, by identifier.
+     */
+    public @NotNull Map<String, Map<String, Object>> read() {
+        final Map<String, Map<String, Object>> contentMap = new LinkedHashMap<>();
+        final File[] files = this.file.getParentFile().listFiles((folder, name) -> name.endsWith(".yml"));
+        if (files == null) return contentMap;
+
+        // Read the arena file last, so it wins.
+        Arrays.sort(files, Comparator.comparing((File file) -> file.equals(this.file)).thenComparing(File::getName));
+
+        synchronized (this.fileLock) {
+            final List<File> legacyList = new ArrayList<>();
+
+            for (File file : files) {
+                final Map<String, Object> document;
+                try {
+                    document = this.readDocument(file);
+                } catch (IOException | RuntimeException exception) {
+                    MineManiaTNTRun.getInstance().getLogger().warning("Unable to read the arenas in " + file.getName() + ": " + exception);
+                    continue;
+                }
+
+                for (Map.Entry<String, Object> entry : document.entrySet()) {
+                    if (!(entry.getValue() instanceof Map<?, ?> map)) continue;
+                    contentMap.put(entry.getKey(), ArenaPersistenceWriter.toPlainMap(map));
+                }
+                if (!file.equals(this.file) && !document.isEmpty()) legacyList.add(file);
+            }
+
+            synchronized (this) {
+                this.legacyFileList.clear();
+                this.legacyFileList.addAll(legacyList);
+            }
+        }
+
+        return contentMap;
+    }
+
+    /**
+     * Used to move the arenas found in other files
+     * into the arena file, on this thread.
+     * The other files are renamed with a migrated
+     * extension once the arena file has been written.
+     *
+     * @return This instance.
+     */
+    public @NotNull ArenaPersistenceWriter migrate() {
+        final List<File> legacyList;
+        synchronized (this) {
+            if (this.legacyFileList.isEmpty()) return this;
+            legacyList = new ArrayList<>(this.legacyFileList);
+            this.legacyFileList.clear();
+
+            // Queue every arena to be written to the arena file.
+            for (Map.Entry<String, Map<String, Object>> entry : this.writtenMap.entrySet()) {
+                this.pendingMap.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+
+        final Batch batch = this.takeBatch();
+        if (!this.write(batch)) return this;
+        this.onWritten(batch);
+
+        for (File legacyFile : legacyList) {
+            try {
+                Files.move(legacyFile.toPath(), new File(legacyFile.getPath() + ".migrated").toPath(), StandardCopyOption.REPLACE_EXISTING);
+                MineManiaTNTRun.getInstance().getLogger().info("Moved the arenas in " + legacyFile.getName() + " into " + this.file.getName() + ".");
+            } catch (IOException exception) {
+                MineManiaTNTRun.getInstance().getLogger().warning("Unable to rename " + legacyFile.getName() + " after moving its arenas: " + exception);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Used to record the content of arenas that
+     * are already in local storage.
+     *
+     * @param arenaList The arenas that have been loaded.
+     * @return This instance.
+     */
+    public synchronized @NotNull ArenaPersistenceWriter seed(@NotNull List<TNTArena> arenaList) {
+        for (TNTArena arena : arenaList) {
+            this.writtenMap.put(arena.getIdentifier().toString(), ArenaPersistenceWriter.toMap(arena.convert()));
+        }
+        return this;
+    }
+
+    /**
+     * Used to queue an arena to be written
+     * if its content has changed.
+     *
+     * @param arena The instance of the arena.
+     * @return True if the arena was queued.
+     */
+    public synchronized boolean mark(@NotNull TNTArena arena) {
+        final String identifier = arena.getIdentifier().toString();
+        final Map<String, Object> content = ArenaPersistenceWriter.toMap(arena.convert());
+
+        // Check if the arena is unchanged.
+        final Map<String, Object> current = this.pendingMap.containsKey(identifier)
+                ? this.pendingMap.get(identifier)
+                : this.writtenMap.get(identifier);
+        if (content.equals(current)) return false;
+
+        this.pendingMap.put(identifier, content);
+        this.removedSet.remove(identifier);
+        this.scheduleFlush();
+        return true;
+    }
+
+    /**
+     * Used to queue an arena to be removed
+     * from local storage.
+     *
+     * @param identifier The arena's identifier.
+     * @return This instance.
+     */
+    public synchronized @NotNull ArenaPersistenceWriter remove(@NotNull String identifier) {
+        this.pendingMap.remove(identifier);
+        this.removedSet.add(identifier);
+        this.scheduleFlush();
+        return this;
+    }
+
+    /**
+     * Used to check if an arena is queued to be removed.
+     *
+     * @param identifier The arena's identifier.
+     * @return True if the arena is being removed.
+     */
+    public synchronized boolean isRemoved(@NotNull String identifier) {
+        return this.removedSet.contains(identifier);
+    }
+
+    /**
+     * Used to get the latest content of an arena,
+     * including changes that have not been written yet.
+     *
+     * @param identifier The arena's identifier.
+     * @return The content or null if the arena does not exist.
+     */
+    public synchronized @Nullable Map<String, Object> getContent(@NotNull String identifier) {
+        if (this.removedSet.contains(identifier)) return null;
+        if (this.pendingMap.containsKey(identifier)) return this.pendingMap.get(identifier);
+        return this.writtenMap.get(identifier);
+    }
+
+    /**
+     * Used to get the latest content of every arena,
+     * including changes that have not been written yet.
+     *
+     * @return A copy of the content, by arena identifier.
+     */
+    public synchronized @NotNull Map<String, Map<String, Object>> getContentMap() {
+        final Map<String, Map<String, Object>> contentMap = new LinkedHashMap<>(this.writtenMap);
+        contentMap.putAll(this.pendingMap);
+        contentMap.keySet().removeAll(this.removedSet);
+        return contentMap;
+    }
+
+    /**
+     * Used to write the queue on an asynchronous thread.
+     *
+     * @return This instance.
+     */
+    public @NotNull ArenaPersistenceWriter flushAsync() {
+        final Batch batch = this.takeBatch();
+        if (batch.isEmpty()) return this;
+
+        MineManiaTNTRun.getInstance().getAsyncExecutor().execute(() -> {
+            if (!this.write(batch)) return;
+            MineManiaTNTRun.getInstance().getMainThreadExecutor().execute(() -> this.onWritten(batch));
+        });
+        return this;
+    }
+
+    /**
+     * Used to write the queue on this thread.
+     * This is used when the plugin is disabled.
+     *
+     * @return This instance.
+     */
+    public @NotNull ArenaPersistenceWriter flush() {
+        final Batch batch = this.takeBatch();
+        if (batch.isEmpty()) return this;
+
+        if (this.write(batch)) this.onWritten(batch);
+        return this;
+    }
+
+    private void scheduleFlush() {
+
+        // Write the queue after the delay,
+        // or on shutdown if the plugin is disabling.
+        if (this.flushScheduled || !MineManiaTNTRun.getInstance().isEnabled()) return;
+        this.flushScheduled = true;
+        MineManiaTNTRun.getInstance().getServer().getScheduler().runTaskLater(
+                MineManiaTNTRun.getInstance(), this::flushAsync, this.debounceTicks
+        );
+    }
+
+    /**
+     * Used to copy the queue into a batch.
+     * Later batches contain every change that is still queued,
+     * so an older batch can be skipped once a newer one is written.
+     *
+     * @return The batch.
+     */
+    private synchronized @NotNull Batch takeBatch() {
+        this.flushScheduled = false;
+        return new Batch(++this.batchSequence, new LinkedHashMap<>(this.pendingMap), new LinkedHashSet<>(this.removedSet));
+    }
+
+    /**
+     * Used to write a batch of arenas over
+     * their entries in the file.
+     * Nothing is written if a newer batch has already been written.
+     *
+     * @param batch The arenas to write and remove.
+     * @return True if the file was written.
+     */
+    private boolean write(@NotNull Batch batch) {
+        final DumperOptions options = new DumperOptions();
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        final Yaml yaml = new Yaml(options);
+
+        synchronized (this.fileLock) {
+
+            // Check if a newer batch has already been written.
+            if (batch.sequence < this.writtenSequence) return false;
+
+            try {
+
+                // Read the arenas that are already in the file.
+                final Map<String, Object> document = this.readDocument(this.file);
+                document.putAll(batch.contentMap);
+                document.keySet().removeAll(batch.removedSet);
+
+                // Write to a temporary file and move it into place.
+                final File temporaryFile = new File(this.file.getPath() + ".tmp");
+                Files.createDirectories(temporaryFile.toPath().getParent());
+                Files.writeString(temporaryFile.toPath(), yaml.dump(document), StandardCharsets.UTF_8);
+                Files.move(temporaryFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                this.writtenSequence = batch.sequence;
+                return true;
+
+            } catch (IOException | RuntimeException exception) {
+                MineManiaTNTRun.getInstance().getLogger().warning("Unable to write the arenas to " + this.file.getName() + ", they will be retried.");
+                exception.printStackTrace();
+                this.retry();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Used to read a yaml file as a map.
+     *
+     * @param file The file to read.
+     * @return The content, empty if the file does not exist.
+     * @throws IOException If the file could not be read.
+     */
+    @SuppressWarnings("unchecked")
+    private @NotNull Map<String, Object> readDocument(@NotNull File file) throws IOException {
+        if (!file.exists()) return new LinkedHashMap<>();
+
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            final Object document = new Yaml().load(reader);
+            if (document == null) return new LinkedHashMap<>();
+            return new LinkedHashMap<>((Map<String, Object>) document);
+        }
+    }
+
+    private void retry() {
+        if (!MineManiaTNTRun.getInstance().isEnabled()) return;
+        MineManiaTNTRun.getInstance().getServer().getScheduler().runTask(MineManiaTNTRun.getInstance(), () -> {
+            synchronized (this) {
+                if (this.flushScheduled || (this.pendingMap.isEmpty() && this.removedSet.isEmpty())) return;
+                this.flushScheduled = true;
+            }
+            MineManiaTNTRun.getInstance().getServer().getScheduler().runTaskLater(
+                    MineManiaTNTRun.getInstance(), this::flushAsync, this.debounceTicks
+            );
+        });
+    }
+
+    /**
+     * Used to move the written arenas out of the queue.
+     * Only the written entries change, so the
+     * configuration does not need to be read again.
+     *
+     * @param batch The batch that was written.
+     */
+    private synchronized void onWritten(@NotNull Batch batch) {
+
+        // Check if a newer batch has already been applied.
+        if (batch.sequence < this.appliedSequence) return;
+        this.appliedSequence = batch.sequence;
+
+        for (Map.Entry<String, Map<String, Object>> entry : batch.contentMap.entrySet()) {
+            this.writtenMap.put(entry.getKey(), entry.getValue());
+
+            // Keep arenas that changed again while writing.
+            this.pendingMap.remove(entry.getKey(), entry.getValue());
+        }
+        for (String identifier : batch.removedSet) {
+            this.writtenMap.remove(identifier);
+
+            // Keep arenas that were saved again while writing.
+            if (!this.pendingMap.containsKey(identifier)) this.removedSet.remove(identifier);
+        }
+    }
+
+    /**
+     * Used to convert a section into plain maps and
+     * lists that can be compared and written as yaml.
+     *
+     * @param section The section to convert.
+     * @return The plain map.
+     */
+    static @NotNull Map<String, Object> toMap(@NotNull ConfigurationSection section) {
+        return ArenaPersistenceWriter.toPlainMap(section.getMap());
+    }
+
+    private static @NotNull Map<String, Object> toPlainMap(@NotNull Map<?, ?> map) {
+        final Map<String, Object> plainMap = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getValue() == null) continue;
+            plainMap.put(String.valueOf(entry.getKey()), ArenaPersistenceWriter.toPlainValue(entry.getValue()));
+        }
+        return plainMap;
+    }
+
+    private static @NotNull Object toPlainValue(@NotNull Object value) {
+        if (value instanceof ConfigurationSection section) return ArenaPersistenceWriter.toPlainMap(section.getMap());
+        if (value instanceof Map<?, ?> map) return ArenaPersistenceWriter.toPlainMap(map);
+        if (value instanceof List<?> list) {
+            final List<Object> plainList = new ArrayList<>(list.size());
+            for (Object element : list) plainList.add(element == null ? null : ArenaPersistenceWriter.toPlainValue(element));
+            return plainList;
+        }
+        return value;
+    }
+
+    /**
+     * Represents the arenas taken from the queue to be written.
+     */
+    private static class Batch {
+
+        private final long sequence;
+        private final @NotNull Map<String, Map<String, Object>> contentMap;
+        private final @NotNull Set<String> removedSet;
+
+        private Batch(long sequence, @NotNull Map<String, Map<String, Object>> contentMap, @NotNull Set<String> removedSet) {
+            this.sequence = sequence;
+            this.contentMap = contentMap;
+            this.removedSet = removedSet;
+        }
+
+        private boolean isEmpty() {
+            return this.contentMap.isEmpty() && this.removedSet.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.configuration;
+
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import com.github.minemaniauk.minemaniatntrun.arena.TNTArena;
+import com.github.smuddgge.squishyconfiguration.memory.MemoryConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Represents the sync between local arenas and the
+ * arenas registered with the game manager.
+ * The content of each registered arena is remembered,
+ * so only arenas that have changed are registered again.
+ * The game manager has no batch call, so each changed arena
+ * is still registered with its own call, on an asynchronous
+ * thread, using a copy taken when the sync ran.
+ * This should only be used on the main server thread.
+ */
+public class ArenaRegistrationSync {
+
+    private final @NotNull Map<UUID, Map<String, Object>> registeredMap;
+
+    /**
+     * Used to create an empty arena registration sync.
+     */
+    public ArenaRegistrationSync() {
+        this.registeredMap = new HashMap<>();
+    }
+
+    /**
+     * Used to register every arena on this thread.
+     * This is used when the plugin is enabled
+     * and when new instances are stamped.
+     *
+     * @param arenaList The arenas to register.
+     * @return This instance.
+     */
+    public @NotNull ArenaRegistrationSync registerAll(@NotNull List<TNTArena> arenaList) {
+        for (TNTArena arena : arenaList) {
+            MineManiaTNTRun.getAPI().getGameManager().registerArena(arena);
+            this.registeredMap.put(arena.getIdentifier(), ArenaPersistenceWriter.toMap(arena.convert()));
+        }
+        return this;
+    }
+
+    /**
+     * Used to register the arenas that have changed
+     * since they were last registered.
+     * If an arena has been removed, every arena is
+     * registered again, as arenas can only be
+     * unregistered all at once.
+     *
+     * @param arenaList The local arenas.
+     * @return The number of arenas being registered.
+     */
+    public int sync(@NotNull List<TNTArena> arenaList) {
+        final List<TNTArena> changedList = new ArrayList<>();
+        final Set<UUID> localSet = new HashSet<>();
+
+        // Find the arenas that have changed.
+        for (TNTArena arena : arenaList) {
+            localSet.add(arena.getIdentifier());
+
+            final Map<String, Object> content = ArenaPersistenceWriter.toMap(arena.convert());
+            if (content.equals(this.registeredMap.get(arena.getIdentifier()))) continue;
+
+            this.registeredMap.put(arena.getIdentifier(), content);
+            changedList.add(ArenaRegistrationSync.snapshot(arena, content));
+        }
+
+        // Check if an arena has been removed.
+        final boolean removed = !localSet.containsAll(this.registeredMap.keySet());
+        if (removed) {
+            this.registeredMap.keySet().retainAll(localSet);
+            changedList.clear();
+            for (TNTArena arena : arenaList) {
+                changedList.add(ArenaRegistrationSync.snapshot(arena, this.registeredMap.get(arena.getIdentifier())));
+            }
+        }
+
+        if (changedList.isEmpty()) return 0;
+
+        MineManiaTNTRun.getInstance().getAsyncExecutor().execute(() -> {
+            try {
+                if (removed) MineManiaTNTRun.getAPI().getGameManager().unregisterLocalArenas();
+                for (TNTArena arena : changedList) {
+                    MineManiaTNTRun.getAPI().getGameManager().registerArena(arena);
+                }
+
+            } catch (RuntimeException exception) {
+                MineManiaTNTRun.getInstance().getLogger().warning("Unable to register " + changedList.size() + " arenas, they will be registered on the next sync.");
+                exception.printStackTrace();
+
+                // Forget the arenas so the next sync sends them again.
+                MineManiaTNTRun.getInstance().getMainThreadExecutor().execute(() -> {
+                    for (TNTArena arena : changedList) {
+                        this.registeredMap.remove(arena.getIdentifier());
+                    }
+                });
+            }
+        });
+
+        return changedList.size();
+    }
+
+    /**
+     * Used to copy an arena, so it can be registered on
+     * another thread while the original keeps changing.
+     *
+     * @param arena   The instance of the arena.
+     * @param content The content of the arena.
+     * @return The copy of the arena.
+     */
+    private static @NotNull TNTArena snapshot(@NotNull TNTArena arena, @NotNull Map<String, Object> content) {
+        return new TNTArena(arena.getIdentifier()).convert(new MemoryConfigurationSection(content));
+    }
+}
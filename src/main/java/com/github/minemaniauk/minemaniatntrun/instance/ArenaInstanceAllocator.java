@@ -0,0 +1,410 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.instance;
+
+import com.github.cozyplugins.cozylibrary.location.Region3D;
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import com.github.minemaniauk.minemaniatntrun.WorldEditUtility;
+import com.github.minemaniauk.minemaniatntrun.arena.TNTArena;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import org.bukkit.GameRule;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Represents the allocator that stamps arena templates
+ * into slots on a grid in a void world.
+ * <li>Each template keeps a number of idle instances registered.</li>
+ * <li>When an instance is claimed, another is stamped into a free slot.</li>
+ * <li>Instances above the idle count and margin that have been idle
+ * long enough are removed together, and their slots are reclaimed.</li>
+ * This should only be used on the main server thread.
+ */
+public class ArenaInstanceAllocator {
+
+    private final @NotNull World world;
+    private final @NotNull Map<String, ArenaTemplate> templateMap;
+    private final int slotSpacing;
+    private final int maxSlots;
+    private final int columns;
+    private final int pasteY;
+    private final int idlePerTemplate;
+    private final int idleMargin;
+    private final long idleTimeoutMillis;
+    private final @NotNull BitSet usedSlots;
+    private final @NotNull Map<String, Integer> stampingMap;
+    private final @NotNull Map<UUID, Long> releasedMap;
+
+    /**
+     * Used to create an arena instance allocator.
+     *
+     * @param world           The world instances are stamped into.
+     * @param templateMap     The templates that can be stamped.
+     * @param slotSpacing     The distance between the corners of two slots.
+     * @param maxSlots        The maximum number of instances.
+     * @param pasteY          The height instances are stamped at.
+     * @param idlePerTemplate   The number of idle instances
+     *                          to keep for each template.
+     * @param idleMargin        The number of extra idle instances
+     *                          allowed before any are removed.
+     * @param idleTimeoutMillis How long an instance must be idle
+     *                          before it can be removed.
+     */
+    public ArenaInstanceAllocator(@NotNull World world, @NotNull Map<String, ArenaTemplate> templateMap,
+                                  int slotSpacing, int maxSlots, int pasteY,
+                                  int idlePerTemplate, int idleMargin, long idleTimeoutMillis) {
+
+        this.world = world;
+        this.templateMap = templateMap;
+        this.slotSpacing = slotSpacing;
+        this.maxSlots = maxSlots;
+        this.columns = Math.max(1, (int) Math.ceil(Math.sqrt(maxSlots)));
+        this.pasteY = pasteY;
+        this.idlePerTemplate = idlePerTemplate;
+        this.idleMargin = idleMargin;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.usedSlots = new BitSet(maxSlots);
+        this.stampingMap = new HashMap<>();
+        this.releasedMap = new HashMap<>();
+    }
+
+    /**
+     * Used to claim the slots of instances that already
+     * exist and stamp any instances that are missing.
+     *
+     * @return This instance.
+     */
+    public @NotNull ArenaInstanceAllocator start() {
+        boolean reclaimed = false;
+
+        for (TNTArena arena : MineManiaTNTRun.getInstance().getArenaConfiguration().getAllArenas()) {
+            if (!arena.isInstance()) continue;
+            this.usedSlots.set(arena.getInstanceSlot());
+
+            // Remove instances of templates that are no longer configured.
+            if (!this.templateMap.containsKey(arena.getInstanceTemplate().orElseThrow())) {
+                this.reclaim(arena);
+                reclaimed = true;
+            }
+        }
+
+        if (reclaimed) MineManiaTNTRun.getInstance().getArenaConfiguration().reloadRegisteredArenas();
+        return this.balance();
+    }
+
+    /**
+     * Used to stamp instances until each template
+     * has enough idle instances.
+     * The instances stamped in one call are
+     * registered together once they have all been created.
+     *
+     * @return This instance.
+     */
+    public @NotNull ArenaInstanceAllocator balance() {
+        final Map<String, List<TNTArena>> idleMap = this.getIdle();
+        final List<CompletableFuture<TNTArena>> futureList = new ArrayList<>();
+
+        for (ArenaTemplate template : this.templateMap.values()) {
+            int idle = idleMap.getOrDefault(template.getIdentifier(), List.of()).size()
+                    + this.stampingMap.getOrDefault(template.getIdentifier(), 0);
+
+            while (idle < this.idlePerTemplate) {
+                final CompletableFuture<TNTArena> future = this.stamp(template);
+                if (future == null) break;
+                futureList.add(future);
+                idle++;
+            }
+        }
+
+        if (futureList.isEmpty()) return this;
+
+        CompletableFuture.allOf(futureList.toArray(new CompletableFuture[0])).thenRunAsync(() -> {
+            final List<TNTArena> arenaList = new ArrayList<>();
+            for (CompletableFuture<TNTArena> future : futureList) {
+                if (future.join() != null) arenaList.add(future.join());
+            }
+            this.register(arenaList);
+        }, MineManiaTNTRun.getInstance().getMainThreadExecutor());
+
+        return this;
+    }
+
+    /**
+     * Used to hand an instance back after its game has ended.
+     * The instance is kept until the next surplus check,
+     * so it can be claimed again without being stamped.
+     *
+     * @param arena The instance that is no longer in use.
+     * @return This instance.
+     */
+    public @NotNull ArenaInstanceAllocator release(@NotNull TNTArena arena) {
+        if (!arena.isInstance()) return this;
+
+        this.releasedMap.put(arena.getIdentifier(), System.currentTimeMillis());
+        return this.balance();
+    }
+
+    /**
+     * Used to remove the instances each template does not need.
+     * Only instances above the idle count and margin that have
+     * been idle for the timeout are removed, and they are removed
+     * together so the registered arenas are only resynced once.
+     *
+     * @return This instance.
+     */
+    public @NotNull ArenaInstanceAllocator reclaimSurplus() {
+        final long now = System.currentTimeMillis();
+        final List<TNTArena> reclaimList = new ArrayList<>();
+
+        for (Map.Entry<String, List<TNTArena>> entry : this.getIdle().entrySet()) {
+            final List<TNTArena> idleList = entry.getValue();
+            final int keep = this.templateMap.containsKey(entry.getKey())
+                    ? this.idlePerTemplate + this.idleMargin
+                    : 0;
+            if (idleList.size() <= keep) continue;
+
+            // Remove the instances that have been idle the longest.
+            idleList.sort(Comparator.comparingLong(arena -> this.releasedMap.getOrDefault(arena.getIdentifier(), 0L)));
+            for (TNTArena arena : idleList.subList(0, idleList.size() - keep)) {
+                if (now - this.releasedMap.getOrDefault(arena.getIdentifier(), 0L) < this.idleTimeoutMillis) break;
+                reclaimList.add(arena);
+            }
+        }
+
+        if (reclaimList.isEmpty()) return this;
+
+        reclaimList.forEach(this::reclaim);
+        MineManiaTNTRun.getInstance().getArenaConfiguration().reloadRegisteredArenas();
+        return this.balance();
+    }
+
+    /**
+     * Used to get the number of slots in use,
+     * including slots still being stamped.
+     *
+     * @return The number of used slots.
+     */
+    public int getUsedSlots() {
+        return this.usedSlots.cardinality();
+    }
+
+    /**
+     * Used to get the maximum number of instances.
+     *
+     * @return The maximum number of slots.
+     */
+    public int getMaxSlots() {
+        return this.maxSlots;
+    }
+
+    /**
+     * Used to get the lowest corner of a slot.
+     *
+     * @param slot The slot in the grid.
+     * @return The location of the slot.
+     */
+    public @NotNull Location getSlotOrigin(int slot) {
+        return new Location(
+                this.world,
+                (slot % this.columns) * this.slotSpacing,
+                this.pasteY,
+                (slot / this.columns) * this.slotSpacing
+        );
+    }
+
+    /**
+     * Used to start stamping a template into the first free slot.
+     * The instance is counted as stamping until it is registered.
+     *
+     * @param template The template to stamp.
+     * @return The future arena, completed with null if it could
+     *         not be created, or null if there are no free slots.
+     */
+    private @Nullable CompletableFuture<TNTArena> stamp(@NotNull ArenaTemplate template) {
+        final int slot = this.usedSlots.nextClearBit(0);
+        if (slot >= this.maxSlots) return null;
+
+        this.usedSlots.set(slot);
+        this.stampingMap.merge(template.getIdentifier(), 1, Integer::sum);
+
+        return CompletableFuture.supplyAsync(
+                () -> WorldEditUtility.getSchematic(template.getSchematic()),
+                MineManiaTNTRun.getInstance().getAsyncExecutor()
+        ).thenApplyAsync(lease -> {
+            try {
+                return this.create(template, slot, lease == null ? null : lease.getClipboard());
+            } finally {
+                if (lease != null) lease.close();
+            }
+        }, MineManiaTNTRun.getInstance().getMainThreadExecutor()).handleAsync((arena, throwable) -> {
+            if (throwable == null) return arena;
+
+            // Free the slot so it can be used again.
+            MineManiaTNTRun.getInstance().getLogger().warning("Unable to stamp template " + template.getIdentifier() + " into slot " + slot + ": " + throwable);
+            this.stampingMap.merge(template.getIdentifier(), -1, Integer::sum);
+            this.usedSlots.clear(slot);
+            return null;
+        }, MineManiaTNTRun.getInstance().getMainThreadExecutor());
+    }
+
+    /**
+     * Used to register and save the instances
+     * stamped in one balance, then refill the
+     * arena pool once for all of them.
+     *
+     * @param arenaList The instances that were created.
+     */
+    private void register(@NotNull List<TNTArena> arenaList) {
+        if (arenaList.isEmpty()) return;
+
+        MineManiaTNTRun.getInstance().getArenaConfiguration().getRegistrationSync().registerAll(arenaList);
+        for (TNTArena arena : arenaList) {
+            arena.save();
+            this.stampingMap.merge(arena.getInstanceTemplate().orElseThrow(), -1, Integer::sum);
+        }
+        MineManiaTNTRun.getInstance().getArenaPool().refill();
+    }
+
+    /**
+     * Used to create the arena for an instance.
+     * The arena pool pastes the schematic in the background
+     * once the arena has been registered.
+     *
+     * @param template  The template being stamped.
+     * @param slot      The slot being stamped into.
+     * @param clipboard The template's schematic.
+     * @return The arena.
+     */
+    private @NotNull TNTArena create(@NotNull ArenaTemplate template, int slot, Clipboard clipboard) {
+        if (clipboard == null) {
+            throw new IllegalStateException("Schematic " + template.getSchematic() + " does not exist.");
+        }
+
+        // Get the clipboard's corners relative to its origin.
+        final BlockVector3 min = clipboard.getRegion().getMinimumPoint().subtract(clipboard.getOrigin());
+        final BlockVector3 max = clipboard.getRegion().getMaximumPoint().subtract(clipboard.getOrigin());
+        final BlockVector3 dimensions = max.subtract(min).add(1, 1, 1);
+        if (dimensions.getBlockX() > this.slotSpacing || dimensions.getBlockZ() > this.slotSpacing) {
+            throw new IllegalStateException("Schematic " + template.getSchematic() + " is larger than the slot spacing.");
+        }
+
+        // Paste the origin so the lowest corner is at the slot's corner.
+        final Location origin = this.getSlotOrigin(slot);
+        final Location pastePoint = origin.clone().subtract(min.getBlockX(), min.getBlockY(), min.getBlockZ());
+        final Region3D region = new Region3D(
+                pastePoint.clone().add(max.getBlockX(), max.getBlockY(), max.getBlockZ()),
+                pastePoint.clone().add(min.getBlockX(), min.getBlockY(), min.getBlockZ())
+        );
+
+        TNTArena arena = new TNTArena(UUID.randomUUID());
+        arena.setRegion(region);
+        arena.setPastePoint(pastePoint);
+        arena.setMinPlayers(template.getMinPlayers());
+        arena.setMaxPlayers(template.getMaxPlayers());
+        arena.setSpawnPoint(template.getSpawnPoint(pastePoint));
+        arena.setSchematic(template.getSchematic());
+        arena.setInstance(template.getIdentifier(), slot);
+        return arena;
+    }
+
+    /**
+     * Used to remove an instance and free its slot
+     * once its blocks have been cleared.
+     * The game manager is updated on the next registration sync.
+     *
+     * @param arena The instance to remove.
+     */
+    private void reclaim(@NotNull TNTArena arena) {
+        final UUID identifier = arena.getIdentifier();
+        MineManiaTNTRun.getInstance().getArenaConfiguration().remove(identifier);
+        MineManiaTNTRun.getInstance().getArenaIndex().remove(identifier);
+        MineManiaTNTRun.getInstance().getTimings().remove(identifier);
+        this.releasedMap.remove(identifier);
+
+        // Wait for a warm preparation to stop pasting,
+        // then clear the blocks before the slot is used again.
+        final int slot = arena.getInstanceSlot();
+        final Region3D region = arena.getRegion();
+        MineManiaTNTRun.getInstance().getArenaPool().remove(identifier).thenRunAsync(() -> {
+            MineManiaTNTRun.getInstance().getArenaRestoreManager().removeJournal(identifier);
+            WorldEditUtility.clearRegion(region);
+        }, MineManiaTNTRun.getInstance().getAsyncExecutor()).whenCompleteAsync((result, throwable) -> {
+            if (throwable != null) {
+                MineManiaTNTRun.getInstance().getLogger().warning("Unable to clear slot " + slot + ", it will not be used again: " + throwable);
+                return;
+            }
+            this.usedSlots.clear(slot);
+        }, MineManiaTNTRun.getInstance().getMainThreadExecutor());
+    }
+
+    /**
+     * Used to get the idle instances of each template.
+     * An instance is idle when no game room has claimed it.
+     *
+     * @return The idle instances for each template.
+     */
+    private @NotNull Map<String, List<TNTArena>> getIdle() {
+        final Map<String, List<TNTArena>> idleMap = new HashMap<>();
+
+        for (TNTArena arena : MineManiaTNTRun.getInstance().getArenaConfiguration().getAllArenas()) {
+            if (!arena.isInstance()) continue;
+            if (arena.getGameRoomIdentifier().isPresent()) continue;
+            if (MineManiaTNTRun.getInstance().getSessionManager().getSession(arena.getIdentifier()).isPresent()) continue;
+            idleMap.computeIfAbsent(arena.getInstanceTemplate().orElseThrow(), key -> new ArrayList<>()).add(arena);
+        }
+
+        return idleMap;
+    }
+
+    /**
+     * Used to load or create the world instances
+     * are stamped into.
+     *
+     * @param name The name of the world.
+     * @return The instance world.
+     */
+    public static @NotNull World loadWorld(@NotNull String name) {
+        final World world = new WorldCreator(name)
+                .generator(new VoidChunkGenerator())
+                .generateStructures(false)
+                .createWorld();
+
+        if (world == null) throw new IllegalStateException("Unable to create the instance world " + name);
+
+        world.setGameRule(GameRule.DO_MOB_SPAWNING, false);
+        world.setGameRule(GameRule.DO_DAYLIGHT_CYCLE, false);
+        world.setGameRule(GameRule.DO_WEATHER_CYCLE, false);
+        world.setAutoSave(false);
+        return world;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.instance;
+
+import org.bukkit.Location;
+import org.bukkit.configuration.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents a template that arena instances are stamped from.
+ * The spawn point is relative to the schematic's origin,
+ * the position it was copied from, so it is the same in every slot.
+ */
+public class ArenaTemplate {
+
+    private final @NotNull String identifier;
+    private final @NotNull String schematic;
+    private final double spawnX;
+    private final double spawnY;
+    private final double spawnZ;
+    private final float spawnYaw;
+    private final int minPlayers;
+    private final int maxPlayers;
+
+    /**
+     * Used to create an arena template.
+     *
+     * @param identifier The template's identifier.
+     * @param schematic  The schematic identifier without extensions.
+     * @param spawnX     The spawn point x relative to the schematic.
+     * @param spawnY     The spawn point y relative to the schematic.
+     * @param spawnZ     The spawn point z relative to the schematic.
+     * @param spawnYaw   The direction players face when they spawn.
+     * @param minPlayers The min number of players.
+     * @param maxPlayers The max number of players.
+     */
+    public ArenaTemplate(@NotNull String identifier, @NotNull String schematic,
+                         double spawnX, double spawnY, double spawnZ, float spawnYaw,
+                         int minPlayers, int maxPlayers) {
+
+        this.identifier = identifier;
+        this.schematic = schematic;
+        this.spawnX = spawnX;
+        this.spawnY = spawnY;
+        this.spawnZ = spawnZ;
+        this.spawnYaw = spawnYaw;
+        this.minPlayers = minPlayers;
+        this.maxPlayers = maxPlayers;
+    }
+
+    /**
+     * Used to get the template's identifier.
+     *
+     * @return The template identifier.
+     */
+    public @NotNull String getIdentifier() {
+        return this.identifier;
+    }
+
+    /**
+     * Used to get the schematic that is stamped.
+     *
+     * @return The schematic identifier.
+     */
+    public @NotNull String getSchematic() {
+        return this.schematic;
+    }
+
+    /**
+     * Used to get the min number of players.
+     *
+     * @return The min number of players.
+     */
+    public int getMinPlayers() {
+        return this.minPlayers;
+    }
+
+    /**
+     * Used to get the max number of players.
+     *
+     * @return The max number of players.
+     */
+    public int getMaxPlayers() {
+        return this.maxPlayers;
+    }
+
+    /**
+     * Used to get the spawn point of an
+     * instance stamped at a location.
+     *
+     * @param pastePoint Where the schematic's origin is pasted.
+     * @return The spawn point.
+     */
+    public @NotNull Location getSpawnPoint(@NotNull Location pastePoint) {
+        final Location spawnPoint = pastePoint.clone().add(this.spawnX, this.spawnY, this.spawnZ);
+        spawnPoint.setYaw(this.spawnYaw);
+        return spawnPoint;
+    }
+
+    /**
+     * Used to create a template from the plugin configuration.
+     *
+     * @param identifier The template's identifier.
+     * @param section    The template's section.
+     * @return The arena template.
+     */
+    public static @NotNull ArenaTemplate of(@NotNull String identifier, @NotNull ConfigurationSection section) {
+        return new ArenaTemplate(
+                identifier,
+                section.getString("schematic", identifier),
+                section.getDouble("spawn_point.x", 0),
+                section.getDouble("spawn_point.y", 0),
+                section.getDouble("spawn_point.z", 0),
+                (float) section.getDouble("spawn_point.yaw", 0),
+                section.getInt("min_players", 2),
+                section.getInt("max_players", 16)
+        );
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.player;
+
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import com.github.minemaniauk.minemaniatntrun.session.component.TNTRemovalComponent;
+import com.github.minemaniauk.minemaniatntrun.session.component.TNTSpectatorComponent;
+import org.bukkit.Location;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents the player movement listener.
+ * Passes players moving onto a new block to their session,
+ * so tnt can be removed the moment it is stepped on and
+ * spectators are kept inside the arena.
+ */
+public class PlayerMovementListener implements Listener {
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onSpectatorMove(@NotNull PlayerMoveEvent event) {
+        if (!PlayerMovementListener.isNewBlock(event)) return;
+
+        // Spectators are clamped before monitor handlers see the move.
+        MineManiaTNTRun.getInstance().getMembershipTracker()
+                .getSession(event.getPlayer().getUniqueId())
+                .ifPresent(session -> session.getComponent(TNTSpectatorComponent.class).onPlayerMove(event));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(@NotNull PlayerMoveEvent event) {
+        if (!PlayerMovementListener.isNewBlock(event)) return;
+
+        final Location to = event.getTo();
+        MineManiaTNTRun.getInstance().getMembershipTracker()
+                .getSession(event.getPlayer().getUniqueId())
+                .ifPresent(session -> session.getComponent(TNTRemovalComponent.class).onPlayerMove(event.getPlayer().getUniqueId(), to));
+    }
+
+    /**
+     * Used to check if a player has moved onto a new block.
+     *
+     * @param event The move event.
+     * @return True if the block has changed.
+     */
+    private static boolean isNewBlock(@NotNull PlayerMoveEvent event) {
+        final Location from = event.getFrom();
+        final Location to = event.getTo();
+        if (to == null) return false;
+
+        return from.getBlockX() != to.getBlockX()
+                || from.getBlockY() != to.getBlockY()
+                || from.getBlockZ() != to.getBlockZ();
+    }
+}
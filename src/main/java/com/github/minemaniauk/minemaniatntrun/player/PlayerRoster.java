@@ -0,0 +1,87 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.player;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Represents the roster of online players.
+ * Kept up to date by join and quit events so players
+ * can be looked up by uuid without scanning the server.
+ */
+public class PlayerRoster implements Listener {
+
+    private final @NotNull Map<UUID, Player> playerMap;
+
+    /**
+     * Used to create the player roster with
+     * the players that are already online.
+     */
+    public PlayerRoster() {
+        this.playerMap = new HashMap<>();
+
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            this.playerMap.put(player.getUniqueId(), player);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoin(@NotNull PlayerJoinEvent event) {
+        this.playerMap.put(event.getPlayer().getUniqueId(), event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(@NotNull PlayerQuitEvent event) {
+        this.playerMap.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Used to get an online player from their uuid.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The player or null if they are not online.
+     */
+    public @Nullable Player getPlayer(@NotNull UUID playerUuid) {
+        return this.playerMap.get(playerUuid);
+    }
+
+    /**
+     * Used to get an online player from their uuid.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The optional player.
+     */
+    public @NotNull Optional<Player> getOptionalPlayer(@NotNull UUID playerUuid) {
+        return Optional.ofNullable(this.playerMap.get(playerUuid));
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.player;
+
+import com.github.minemaniauk.api.database.record.GameRoomRecord;
+import com.github.minemaniauk.api.user.MineManiaUser;
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import com.github.minemaniauk.minemaniatntrun.session.TNTSession;
+import com.github.minemaniauk.minemaniatntrun.session.TNTStatus;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Represents the session membership tracker.
+ * Uses join, quit and world change events to push
+ * membership changes into the sessions, so the sessions
+ * never have to poll the online players or the game rooms.
+ * A game room is only looked up again when a player arrives
+ * that no cached game room contains, as that player has
+ * been added to a game room since it was last looked up.
+ */
+public class SessionMembershipTracker implements Listener {
+
+    private final @NotNull List<TNTSession> sessionList;
+    private final @NotNull Map<UUID, TNTSession> memberMap;
+
+    /**
+     * Used to create a session membership tracker.
+     */
+    public SessionMembershipTracker() {
+        this.sessionList = new ArrayList<>();
+        this.memberMap = new HashMap<>();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(@NotNull PlayerJoinEvent event) {
+        final Player player = event.getPlayer();
+
+        for (TNTSession session : this.sessionList) {
+            if (!session.isGameRoomMember(player.getUniqueId())) continue;
+            this.join(player, session);
+            return;
+        }
+
+        this.reconcileWaiting();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(@NotNull PlayerQuitEvent event) {
+        this.leave(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(@NotNull PlayerChangedWorldEvent event) {
+        final Player player = event.getPlayer();
+
+        // Check if the player is already a member of a session.
+        if (this.memberMap.containsKey(player.getUniqueId())) return;
+
+        for (TNTSession session : this.sessionList) {
+            World world = session.getArena().getRegion().getMinPoint().getWorld();
+            if (!player.getWorld().equals(world)) continue;
+            if (!session.isGameRoomMember(player.getUniqueId())) continue;
+            this.join(player, session);
+            return;
+        }
+
+        this.reconcileWaiting();
+    }
+
+    /**
+     * Used to start tracking the members of a session.
+     *
+     * @param session The instance of the session.
+     * @return This instance.
+     */
+    public @NotNull SessionMembershipTracker register(@NotNull TNTSession session) {
+        this.sessionList.add(session);
+        this.reconcile(session);
+        return this;
+    }
+
+    /**
+     * Used to stop tracking the members of a session.
+     *
+     * @param session The instance of the session.
+     * @return This instance.
+     */
+    public @NotNull SessionMembershipTracker unregister(@NotNull TNTSession session) {
+        this.sessionList.remove(session);
+        this.memberMap.values().removeIf(memberSession -> memberSession == session);
+        return this;
+    }
+
+    /**
+     * Used to bring the members of a session in line
+     * with its game room in a single game room lookup.
+     * The game room players are cached on the session,
+     * so join and world change events never look them up.
+     *
+     * @param session The instance of the session.
+     * @return This instance.
+     */
+    public @NotNull SessionMembershipTracker reconcile(@NotNull TNTSession session) {
+
+        // Get the players in the game room.
+        GameRoomRecord gameRoomRecord = session.getArena().getGameRoom().orElse(null);
+        Set<UUID> gameRoomMembers = new HashSet<>();
+        if (gameRoomRecord != null) {
+            for (MineManiaUser user : gameRoomRecord.getPlayers()) {
+                gameRoomMembers.add(user.getUniqueId());
+            }
+        }
+        session.setGameRoomMembers(gameRoomMembers);
+
+        // Remove members that are no longer in the game room.
+        for (UUID playerUuid : new ArrayList<>(session.getMembers())) {
+            if (gameRoomMembers.contains(playerUuid)) continue;
+            this.leave(playerUuid);
+        }
+
+        // Add game room players that are online.
+        for (UUID playerUuid : gameRoomMembers) {
+            Player player = MineManiaTNTRun.getInstance().getPlayerRoster().getPlayer(playerUuid);
+            if (player == null) continue;
+            this.join(player, session);
+        }
+
+        return this;
+    }
+
+    /**
+     * Used to look up the game rooms of the sessions
+     * that have not started, after a player arrived
+     * that none of their cached game rooms contain.
+     *
+     * @return This instance.
+     */
+    public @NotNull SessionMembershipTracker reconcileWaiting() {
+        for (TNTSession session : new ArrayList<>(this.sessionList)) {
+            if (session.getStatus() != TNTStatus.WAITING) continue;
+            this.reconcile(session);
+        }
+        return this;
+    }
+
+    /**
+     * Used to get the session a player is a member of.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The optional session.
+     */
+    public @NotNull Optional<TNTSession> getSession(@NotNull UUID playerUuid) {
+        return Optional.ofNullable(this.memberMap.get(playerUuid));
+    }
+
+    private void join(@NotNull Player player, @NotNull TNTSession session) {
+        final TNTSession previous = this.memberMap.put(player.getUniqueId(), session);
+
+        // Check if the player has moved from another session.
+        if (previous != null && previous != session) previous.onMemberLeave(player.getUniqueId());
+
+        session.onMemberJoin(player);
+    }
+
+    private void leave(@NotNull UUID playerUuid) {
+        final TNTSession session = this.memberMap.remove(playerUuid);
+        if (session == null) return;
+        session.onMemberLeave(playerUuid);
+    }
+}
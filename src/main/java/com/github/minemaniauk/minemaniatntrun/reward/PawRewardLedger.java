@@ -0,0 +1,316 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.reward;
+
+import com.github.minemaniauk.api.database.collection.UserCollection;
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents a write-behind ledger of paw rewards.
+ * Credits are written to a local append-only journal and
+ * queued, credits for the same player are combined, and
+ * the queue is written to the database in batches.
+ * <li>{@code C <sequence> <uuid> <amount>} records a credit.</li>
+ * <li>{@code A <uuid> <sequence>} records that every credit for
+ * the player up to the sequence is in the database.</li>
+ */
+public class PawRewardLedger {
+
+    private final @NotNull File journalFile;
+    private final @NotNull Map<UUID, PendingCredit> pendingMap;
+    private final @NotNull Object flushLock;
+    private final @NotNull AtomicLong flushCount;
+    private BufferedWriter journalWriter;
+    private long sequence;
+
+    private volatile long lastFlushMillis;
+
+    /**
+     * Used to create a paw reward ledger.
+     *
+     * @param journalFile The file used as the journal.
+     */
+    public PawRewardLedger(@NotNull File journalFile) {
+        this.journalFile = journalFile;
+        this.pendingMap = new LinkedHashMap<>();
+        this.flushLock = new Object();
+        this.flushCount = new AtomicLong();
+    }
+
+    /**
+     * Used to load the credits that were not written
+     * to the database before the server stopped, and
+     * rewrite the journal with only those credits.
+     * If the journal cannot be read, it is kept as a
+     * {@code .corrupt} file instead of being rewritten.
+     *
+     * @return This instance.
+     */
+    public synchronized @NotNull PawRewardLedger open() {
+        final Map<UUID, List<long[]>> creditMap = new HashMap<>();
+        final Map<UUID, Long> acknowledgedMap = new HashMap<>();
+
+        // Read the journal.
+        if (this.journalFile.exists()) {
+            try {
+                for (String line : Files.readAllLines(this.journalFile.toPath(), StandardCharsets.UTF_8)) {
+                    final String[] parts = line.split(" ");
+                    if (parts.length == 4 && parts[0].equals("C")) {
+                        final long lineSequence = Long.parseLong(parts[1]);
+                        creditMap.computeIfAbsent(UUID.fromString(parts[2]), uuid -> new ArrayList<>())
+                                .add(new long[]{lineSequence, Long.parseLong(parts[3])});
+                        this.sequence = Math.max(this.sequence, lineSequence);
+                    }
+                    if (parts.length == 3 && parts[0].equals("A")) {
+                        acknowledgedMap.merge(UUID.fromString(parts[1]), Long.parseLong(parts[2]), Math::max);
+                    }
+                }
+            } catch (IOException | RuntimeException exception) {
+                exception.printStackTrace();
+
+                // Keep the journal so the unread credits can be recovered.
+                final File corruptFile = new File(this.journalFile.getPath() + "." + System.currentTimeMillis() + ".corrupt");
+                try {
+                    Files.move(this.journalFile.toPath(), corruptFile.toPath());
+                } catch (IOException moveException) {
+                    throw new RuntimeException("Unable to read or move aside the paw reward journal.", moveException);
+                }
+                MineManiaTNTRun.getInstance().getLogger().severe("Unable to read the paw reward journal, it has been kept as "
+                        + corruptFile.getName() + ". Unread rewards must be recovered from it by hand.");
+            }
+        }
+
+        // Queue the credits that were never acknowledged.
+        for (Map.Entry<UUID, List<long[]>> entry : creditMap.entrySet()) {
+            final long acknowledged = acknowledgedMap.getOrDefault(entry.getKey(), 0L);
+            for (long[] credit : entry.getValue()) {
+                if (credit[0] <= acknowledged) continue;
+                this.queue(entry.getKey(), (int) credit[1], credit[0]);
+            }
+        }
+
+        // Rewrite the journal with only the queued credits.
+        try {
+            final File temporaryFile = new File(this.journalFile.getPath() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile.toPath(), StandardCharsets.UTF_8)) {
+                for (Map.Entry<UUID, PendingCredit> entry : this.pendingMap.entrySet()) {
+                    writer.write("C " + entry.getValue().sequence + " " + entry.getKey() + " " + entry.getValue().amount);
+                    writer.newLine();
+                }
+            }
+            Files.move(temporaryFile.toPath(), this.journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            this.journalWriter = Files.newBufferedWriter(this.journalFile.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND
+            );
+        } catch (IOException exception) {
+            throw new RuntimeException("Unable to open the paw reward journal.", exception);
+        }
+
+        if (!this.pendingMap.isEmpty()) {
+            MineManiaTNTRun.getInstance().getLogger().info("Recovered " + this.pendingMap.size() + " unpaid paw rewards from the journal.");
+        }
+        return this;
+    }
+
+    /**
+     * Used to give a player paws.
+     * The credit is journaled straight away and
+     * written to the database on the next flush.
+     *
+     * @param playerUuid The player's uuid.
+     * @param amount     The number of paws.
+     * @return This instance.
+     */
+    public synchronized @NotNull PawRewardLedger credit(@NotNull UUID playerUuid, int amount) {
+        if (amount <= 0) return this;
+
+        this.sequence++;
+        this.append("C " + this.sequence + " " + playerUuid + " " + amount);
+        this.queue(playerUuid, amount, this.sequence);
+        return this;
+    }
+
+    /**
+     * Used to write the queued credits to the database.
+     * Credits that fail are queued again.
+     * Only one flush runs at a time.
+     *
+     * @return The number of players that were paid.
+     */
+    public int flush() {
+        synchronized (this.flushLock) {
+            return this.flushBatch();
+        }
+    }
+
+    /**
+     * Used to write the queued credits and
+     * close the journal.
+     * This waits for a flush that is already running,
+     * so its acknowledgements are journaled first.
+     *
+     * @return This instance.
+     */
+    public @NotNull PawRewardLedger close() {
+        synchronized (this.flushLock) {
+            this.flushBatch();
+
+            synchronized (this) {
+                if (this.journalWriter == null) return this;
+                try {
+                    this.journalWriter.close();
+                } catch (IOException exception) {
+                    MineManiaTNTRun.getInstance().getLogger().warning("Unable to close the paw reward journal.");
+                }
+                this.journalWriter = null;
+            }
+        }
+        return this;
+    }
+
+    private int flushBatch() {
+        final Map<UUID, PendingCredit> batch;
+
+        // Take the current queue.
+        synchronized (this) {
+            if (this.pendingMap.isEmpty()) return 0;
+            batch = new LinkedHashMap<>(this.pendingMap);
+            this.pendingMap.clear();
+        }
+
+        final long startTime = System.currentTimeMillis();
+        final UserCollection collection = MineManiaTNTRun.getAPI().getDatabase().getTable(UserCollection.class);
+        int paid = 0;
+
+        for (Map.Entry<UUID, PendingCredit> entry : batch.entrySet()) {
+            final UUID playerUuid = entry.getKey();
+            final PendingCredit credit = entry.getValue();
+
+            try {
+                collection.getUserRecord(playerUuid).ifPresentOrElse(user -> {
+                    user.addPaws(credit.amount);
+                    collection.insertRecord(user);
+                }, () -> MineManiaTNTRun.getInstance().getLogger().warning(
+                        "Dropped " + credit.amount + " paws for " + playerUuid + " as they have no user record."
+                ));
+
+                synchronized (this) {
+                    this.append("A " + playerUuid + " " + credit.sequence);
+                }
+                paid++;
+
+            } catch (RuntimeException exception) {
+                MineManiaTNTRun.getInstance().getLogger().warning("Unable to give " + playerUuid + " paws, they will be retried.");
+                synchronized (this) {
+                    this.queue(playerUuid, credit.amount, credit.sequence);
+                }
+            }
+        }
+
+        this.lastFlushMillis = System.currentTimeMillis() - startTime;
+        this.flushCount.incrementAndGet();
+        return paid;
+    }
+
+    /**
+     * Used to get the number of players waiting to be paid.
+     *
+     * @return The queue depth.
+     */
+    public synchronized int getQueueDepth() {
+        return this.pendingMap.size();
+    }
+
+    /**
+     * Used to get how long the last flush took.
+     *
+     * @return The flush latency in milliseconds.
+     */
+    public long getLastFlushMillis() {
+        return this.lastFlushMillis;
+    }
+
+    /**
+     * Used to get the number of flushes that wrote to the database.
+     *
+     * @return The number of flushes.
+     */
+    public long getFlushCount() {
+        return this.flushCount.get();
+    }
+
+    private void queue(@NotNull UUID playerUuid, int amount, long sequence) {
+        final PendingCredit pending = this.pendingMap.get(playerUuid);
+        if (pending == null) {
+            this.pendingMap.put(playerUuid, new PendingCredit(amount, sequence));
+            return;
+        }
+
+        // Combine the credits for the same player.
+        pending.amount += amount;
+        pending.sequence = Math.max(pending.sequence, sequence);
+    }
+
+    private void append(@NotNull String line) {
+        if (this.journalWriter == null) {
+            MineManiaTNTRun.getInstance().getLogger().warning("The paw reward journal is not open, {" + line + "} was not journaled.");
+            return;
+        }
+
+        try {
+            this.journalWriter.write(line);
+            this.journalWriter.newLine();
+            this.journalWriter.flush();
+        } catch (IOException exception) {
+            MineManiaTNTRun.getInstance().getLogger().warning("Unable to write {" + line + "} to the paw reward journal.");
+        }
+    }
+
+    /**
+     * Represents the combined credits for a player.
+     */
+    private static class PendingCredit {
+
+        private int amount;
+        private long sequence;
+
+        private PendingCredit(int amount, long sequence) {
+            this.amount = amount;
+            this.sequence = sequence;
+        }
+    }
+}
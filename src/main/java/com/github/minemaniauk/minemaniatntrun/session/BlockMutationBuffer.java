@@ -0,0 +1,174 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.session;
+
+import com.github.minemaniauk.minemaniatntrun.BlockKey;
+import com.github.minemaniauk.minemaniatntrun.WorldEditUtility;
+import com.sk89q.worldedit.EditSession;
+import com.sk89q.worldedit.bukkit.BukkitAdapter;
+import com.sk89q.worldedit.world.block.BlockState;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents a buffer of block changes in a session.
+ * Changes are grouped by chunk section and written once
+ * per tick through one fast world edit session, with physics
+ * and relighting turned off, so each section is written and
+ * sent to players together instead of one update per block.
+ * This should only be used on the main server thread.
+ */
+public class BlockMutationBuffer {
+
+    private static final int DEFAULT_SECTION_CAPACITY = 16;
+
+    private final @NotNull World world;
+    private final @NotNull Map<Long, Section> sectionMap;
+    private final @NotNull List<Section> dirtyList;
+    private final @NotNull Map<Material, BlockState> stateMap;
+    private int pending;
+
+    /**
+     * Used to create an empty block mutation buffer.
+     *
+     * @param world The world the blocks are in.
+     */
+    public BlockMutationBuffer(@NotNull World world) {
+        this.world = world;
+        this.sectionMap = new HashMap<>();
+        this.dirtyList = new ArrayList<>();
+        this.stateMap = new EnumMap<>(Material.class);
+    }
+
+    /**
+     * Used to queue a block to be changed on the next flush.
+     * If the block is queued more than once, the last
+     * material is the one that is set.
+     *
+     * @param key      The packed block key.
+     * @param material The material to set.
+     * @return This instance.
+     */
+    public @NotNull BlockMutationBuffer set(long key, @NotNull Material material) {
+        final int x = BlockKey.getX(key);
+        final int y = BlockKey.getY(key);
+        final int z = BlockKey.getZ(key);
+
+        final Section section = this.sectionMap.computeIfAbsent(
+                BlockKey.pack(x >> 4, y >> 4, z >> 4),
+                sectionKey -> new Section()
+        );
+        if (section.size == 0) this.dirtyList.add(section);
+
+        section.add(key, material);
+        this.pending++;
+        return this;
+    }
+
+    /**
+     * Used to write every queued change in one edit session.
+     * The sections are emptied and forgotten afterwards,
+     * so only sections changed since the last flush are kept.
+     *
+     * @return The number of blocks changed.
+     */
+    public int flush() {
+        if (this.pending == 0) return 0;
+        final int changed = this.pending;
+
+        try (EditSession editSession = WorldEditUtility.createFastEditSession(this.world)) {
+            for (Section section : this.dirtyList) {
+                for (int index = 0; index < section.size; index++) {
+                    final long key = section.keys[index];
+                    editSession.setBlock(
+                            BlockKey.getX(key), BlockKey.getY(key), BlockKey.getZ(key),
+                            this.getState(section.materials[index])
+                    );
+                }
+            }
+
+        } finally {
+            this.clear();
+        }
+
+        return changed;
+    }
+
+    /**
+     * Used to forget every queued change.
+     *
+     * @return This instance.
+     */
+    public @NotNull BlockMutationBuffer clear() {
+        this.sectionMap.clear();
+        this.dirtyList.clear();
+        this.pending = 0;
+        return this;
+    }
+
+    /**
+     * Used to get the number of changes waiting to be applied.
+     *
+     * @return The number of queued changes.
+     */
+    public int getPending() {
+        return this.pending;
+    }
+
+    private @NotNull BlockState getState(@NotNull Material material) {
+        return this.stateMap.computeIfAbsent(material, key -> BukkitAdapter.adapt(key.createBlockData()));
+    }
+
+    /**
+     * Represents the queued changes in one chunk section.
+     */
+    private static class Section {
+
+        private long[] keys;
+        private Material[] materials;
+        private int size;
+
+        private Section() {
+            this.keys = new long[DEFAULT_SECTION_CAPACITY];
+            this.materials = new Material[DEFAULT_SECTION_CAPACITY];
+        }
+
+        private void add(long key, @NotNull Material material) {
+
+            // Grow the section if it is full.
+            if (this.size == this.keys.length) {
+                this.keys = Arrays.copyOf(this.keys, this.size * 2);
+                this.materials = Arrays.copyOf(this.materials, this.size * 2);
+            }
+
+            this.keys[this.size] = key;
+            this.materials[this.size] = material;
+            this.size++;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.session;
+
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import com.github.minemaniauk.minemaniatntrun.timing.TimingHistogram;
+import com.github.minemaniauk.minemaniatntrun.timing.TimingRegistry;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Represents the single ticker that runs every
+ * session component loop.
+ * Loops with the same period are spread over that many
+ * phase buckets, each new loop going into the least
+ * loaded bucket, so loops that would otherwise land on
+ * the same tick are run on different ticks instead.
+ * When adaptive scheduling is enabled, the time between
+ * ticks is averaged and compared to the back-off thresholds.
+ * Each level reached doubles the period of low priority
+ * loops, and from the second level normal priority loops,
+ * while critical loops keep their period.
+ * This should only be used on the main server thread.
+ */
+public class SessionTicker {
+
+    private static final double AVERAGE_WEIGHT = 0.1;
+    private static final double HYSTERESIS_MILLIS = 2;
+    private static final int LEVEL_COOLDOWN_TICKS = 20;
+
+    private final @NotNull TimingRegistry timings;
+    private final @NotNull Map<Long, PeriodGroup> groupMap;
+    private @NotNull PeriodGroup[] groups;
+    private final double[] thresholds;
+    private BukkitTask task;
+    private long tick;
+    private int taskCount;
+    private long lastTickNanos;
+    private double averageMillis;
+    private int level;
+    private long levelChangeTick;
+
+    /**
+     * Used to create a session ticker.
+     *
+     * @param timings    The registry to record loop timings in.
+     * @param thresholds The average milliseconds between ticks
+     *                   at which each back-off level starts, in
+     *                   ascending order. Empty to never back off.
+     */
+    public SessionTicker(@NotNull TimingRegistry timings, double[] thresholds) {
+        this.timings = timings;
+        this.groupMap = new TreeMap<>();
+        this.groups = new PeriodGroup[0];
+        this.thresholds = thresholds;
+        this.averageMillis = 50;
+    }
+
+    /**
+     * Used to start ticking every server tick.
+     *
+     * @return This instance.
+     */
+    public @NotNull SessionTicker start() {
+        if (this.task != null) return this;
+        this.task = MineManiaTNTRun.getInstance().getServer().getScheduler()
+                .runTaskTimer(MineManiaTNTRun.getInstance(), this::tick, 1, 1);
+        return this;
+    }
+
+    /**
+     * Used to stop ticking.
+     *
+     * @return This instance.
+     */
+    public @NotNull SessionTicker stop() {
+        if (this.task == null) return this;
+        this.task.cancel();
+        this.task = null;
+        return this;
+    }
+
+    /**
+     * Used to run a component loop.
+     *
+     * @param identifier      The loop identifier, used for timings.
+     * @param arenaIdentifier The arena the loop belongs to.
+     * @param period          The number of ticks between each run.
+     * @param priority        How the loop backs off under tick pressure.
+     * @param runnable        The loop to run.
+     * @return The scheduled task.
+     */
+    public @NotNull Task schedule(@NotNull String identifier, @NotNull UUID arenaIdentifier, long period,
+                                  @NotNull TaskPriority priority, @NotNull Runnable runnable) {
+
+        if (period < 1) throw new IllegalArgumentException("Period must be at least 1 but was " + period);
+
+        PeriodGroup group = this.groupMap.get(period);
+        if (group == null) {
+            group = new PeriodGroup(period);
+            this.groupMap.put(period, group);
+
+            // Replace the array instead of changing it,
+            // so a tick that is running keeps its own groups.
+            this.groups = this.groupMap.values().toArray(new PeriodGroup[0]);
+        }
+
+        final int phase = group.getLeastLoadedPhase();
+        final Task task = new Task(identifier, arenaIdentifier, runnable, priority, this.timings.getHistogram(identifier, arenaIdentifier));
+
+        group.buckets[phase].add(task);
+        group.loads[phase]++;
+        task.group = group;
+        task.phase = phase;
+        this.taskCount++;
+        return task;
+    }
+
+    /**
+     * Used to get the number of loops being run.
+     *
+     * @return The number of loops.
+     */
+    public int getTaskCount() {
+        return this.taskCount;
+    }
+
+    /**
+     * Used to get the current back-off level.
+     *
+     * @return The back-off level, 0 when not backing off.
+     */
+    public int getLevel() {
+        return this.level;
+    }
+
+    /**
+     * Used to get the average milliseconds between ticks.
+     *
+     * @return The average tick duration.
+     */
+    public double getAverageMillis() {
+        return this.averageMillis;
+    }
+
+    /**
+     * Used to get how many times longer the loops
+     * of a priority currently wait between runs.
+     *
+     * @param priority The loop priority.
+     * @return The period multiplier.
+     */
+    public int getBackOff(@NotNull TaskPriority priority) {
+        return switch (priority) {
+            case CRITICAL -> 1;
+            case NORMAL -> 1 << Math.max(0, this.level - 1);
+            case LOW -> 1 << this.level;
+        };
+    }
+
+    /**
+     * Used to run the loops that are due this tick.
+     */
+    private void tick() {
+        this.tick++;
+        this.updateLevel();
+
+        final int normalBackOff = this.getBackOff(TaskPriority.NORMAL);
+        final int lowBackOff = this.getBackOff(TaskPriority.LOW);
+
+        // Groups added while running start next tick.
+        final PeriodGroup[] groups = this.groups;
+        for (PeriodGroup group : groups) {
+            final List<Task> bucket = group.buckets[(int) (this.tick % group.period)];
+            if (bucket.isEmpty()) continue;
+
+            // Loops added while running start next cycle.
+            final int size = bucket.size();
+            boolean cancelled = false;
+
+            for (int index = 0; index < size; index++) {
+                final Task task = bucket.get(index);
+                if (task.cancelled) {
+                    cancelled = true;
+                    continue;
+                }
+
+                // Check if the loop is backing off this time.
+                final int backOff = task.priority == TaskPriority.LOW ? lowBackOff
+                        : task.priority == TaskPriority.NORMAL ? normalBackOff : 1;
+                if (++task.dueCount < backOff) continue;
+
+                task.dueCount = 0;
+                task.run();
+            }
+
+            if (cancelled) bucket.removeIf(task -> task.cancelled);
+        }
+    }
+
+    /**
+     * Used to average the time since the last tick
+     * and move the back-off level towards it.
+     * The level changes at most once a second.
+     */
+    private void updateLevel() {
+        final long nanos = System.nanoTime();
+        final long lastNanos = this.lastTickNanos;
+        this.lastTickNanos = nanos;
+        if (lastNanos == 0 || this.thresholds.length == 0) return;
+
+        final double millis = (nanos - lastNanos) / 1_000_000D;
+        this.averageMillis += (millis - this.averageMillis) * AVERAGE_WEIGHT;
+
+        // Check if the level changed recently.
+        if (this.tick - this.levelChangeTick < LEVEL_COOLDOWN_TICKS) return;
+
+        if (this.level < this.thresholds.length && this.averageMillis >= this.thresholds[this.level]) {
+            this.level++;
+            this.levelChangeTick = this.tick;
+            return;
+        }
+
+        if (this.level > 0 && this.averageMillis < this.thresholds[this.level - 1] - HYSTERESIS_MILLIS) {
+            this.level--;
+            this.levelChangeTick = this.tick;
+        }
+    }
+
+    /**
+     * Represents a component loop run by the ticker.
+     */
+    public class Task {
+
+        private final @NotNull String identifier;
+        private final @NotNull UUID arenaIdentifier;
+        private final @NotNull Runnable runnable;
+        private final @NotNull TaskPriority priority;
+        private final @NotNull TimingHistogram histogram;
+        private PeriodGroup group;
+        private int phase;
+        private int dueCount;
+        private boolean cancelled;
+
+        private Task(@NotNull String identifier, @NotNull UUID arenaIdentifier, @NotNull Runnable runnable,
+                     @NotNull TaskPriority priority, @NotNull TimingHistogram histogram) {
+            this.identifier = identifier;
+            this.arenaIdentifier = arenaIdentifier;
+            this.runnable = runnable;
+            this.priority = priority;
+            this.histogram = histogram;
+        }
+
+        /**
+         * Used to stop running this loop.
+         * This is safe to call from inside the loop.
+         */
+        public void cancel() {
+            if (this.cancelled) return;
+            this.cancelled = true;
+            this.group.loads[this.phase]--;
+            SessionTicker.this.taskCount--;
+        }
+
+        /**
+         * Used to check if this loop has been cancelled.
+         *
+         * @return True if it has been cancelled.
+         */
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        private void run() {
+            final long startNanos = System.nanoTime();
+            try {
+                this.runnable.run();
+            } catch (RuntimeException exception) {
+                MineManiaTNTRun.getInstance().getLogger().log(Level.WARNING,
+                        "Loop " + this.identifier + " in arena " + this.arenaIdentifier + " failed.", exception);
+            } finally {
+                this.histogram.record(System.nanoTime() - startNanos);
+            }
+        }
+    }
+
+    /**
+     * Represents the phase buckets of loops
+     * that share a period.
+     */
+    private static class PeriodGroup {
+
+        private final long period;
+        private final @NotNull List<Task>[] buckets;
+        private final int[] loads;
+
+        @SuppressWarnings("unchecked")
+        private PeriodGroup(long period) {
+            this.period = period;
+            this.buckets = new List[(int) period];
+            this.loads = new int[(int) period];
+
+            for (int phase = 0; phase < period; phase++) {
+                this.buckets[phase] = new ArrayList<>();
+            }
+        }
+
+        private int getLeastLoadedPhase() {
+            int phase = 0;
+            for (int index = 1; index < this.loads.length; index++) {
+                if (this.loads[index] < this.loads[phase]) phase = index;
+            }
+            return phase;
+        }
+    }
+}
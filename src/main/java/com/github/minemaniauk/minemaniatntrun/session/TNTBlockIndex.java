@@ -0,0 +1,308 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.session;
+
+import com.github.cozyplugins.cozylibrary.location.Region3D;
+import com.github.minemaniauk.minemaniatntrun.BlockKey;
+import com.sk89q.worldedit.extent.clipboard.Clipboard;
+import com.sk89q.worldedit.math.BlockVector3;
+import com.sk89q.worldedit.world.block.BlockTypes;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Represents the index of live tnt blocks in a session.
+ * Block positions are stored as packed keys in an
+ * open addressing set, so looking for tnt near a player
+ * never has to touch the world.
+ */
+public class TNTBlockIndex {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The offsets checked around the block below a player,
+     * ordered by distance so the nearest tnt is found first.
+     */
+    private static final int[][] NEIGHBOURHOOD = createNeighbourhood();
+
+    private long[] table;
+    private int size;
+    private boolean built;
+
+    /**
+     * Used to create an empty tnt block index.
+     */
+    public TNTBlockIndex() {
+        this.table = TNTBlockIndex.createTable(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Used to build the index from a pasted clipboard.
+     *
+     * @param clipboard     The clipboard that was pasted.
+     * @param pasteLocation The location the clipboard was pasted to.
+     * @return This instance.
+     */
+    public @NotNull TNTBlockIndex build(@NotNull Clipboard clipboard, @NotNull Location pasteLocation) {
+        this.clear();
+
+        // Get the difference between clipboard and world positions.
+        final BlockVector3 origin = clipboard.getOrigin();
+        final int offsetX = pasteLocation.getBlockX() - origin.getBlockX();
+        final int offsetY = pasteLocation.getBlockY() - origin.getBlockY();
+        final int offsetZ = pasteLocation.getBlockZ() - origin.getBlockZ();
+
+        for (BlockVector3 position : clipboard.getRegion()) {
+            if (!clipboard.getBlock(position).getBlockType().equals(BlockTypes.TNT)) continue;
+            this.add(BlockKey.pack(
+                    position.getBlockX() + offsetX,
+                    position.getBlockY() + offsetY,
+                    position.getBlockZ() + offsetZ
+            ));
+        }
+
+        this.built = true;
+        return this;
+    }
+
+    /**
+     * Used to build the index by scanning a region of the world.
+     * This should only be used when no clipboard was pasted.
+     *
+     * @param region The region to scan.
+     * @return This instance.
+     */
+    public @NotNull TNTBlockIndex build(@NotNull Region3D region) {
+        this.clear();
+
+        for (Block block : region.getBlockList()) {
+            if (!block.getType().equals(Material.TNT)) continue;
+            this.add(BlockKey.pack(block.getX(), block.getY(), block.getZ()));
+        }
+
+        this.built = true;
+        return this;
+    }
+
+    /**
+     * Used to check if the index has been built.
+     *
+     * @return True if the index has been built.
+     */
+    public boolean isBuilt() {
+        return this.built;
+    }
+
+    /**
+     * Used to get the number of live tnt blocks.
+     *
+     * @return The number of live tnt blocks.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Used to get the y coordinate of the lowest live tnt.
+     *
+     * @return The lowest y or {@link Integer#MAX_VALUE} if the index is empty.
+     */
+    public int getLowestY() {
+        int lowestY = Integer.MAX_VALUE;
+        for (long key : this.table) {
+            if (key != BlockKey.NONE) lowestY = Math.min(lowestY, BlockKey.getY(key));
+        }
+        return lowestY;
+    }
+
+    /**
+     * Used to find the nearest live tnt around a block.
+     * This checks the block itself first, then a 5x3x5
+     * area around it.
+     *
+     * @param x The block x coordinate.
+     * @param y The block y coordinate.
+     * @param z The block z coordinate.
+     * @return The key of the nearest tnt or {@link BlockKey#NONE}.
+     */
+    public long findNearest(int x, int y, int z) {
+        if (this.size == 0) return BlockKey.NONE;
+
+        for (int[] offset : NEIGHBOURHOOD) {
+            final long key = BlockKey.pack(x + offset[0], y + offset[1], z + offset[2]);
+            if (this.contains(key)) return key;
+        }
+
+        return BlockKey.NONE;
+    }
+
+    /**
+     * Used to get a spread of keys from the index.
+     *
+     * @param amount The maximum number of keys.
+     * @return The sampled keys.
+     */
+    public long[] sample(int amount) {
+        final long[] keys = new long[Math.min(amount, this.size)];
+        if (keys.length == 0) return keys;
+
+        final int stride = Math.max(1, this.table.length / keys.length);
+        int found = 0;
+
+        // Step through the table so the keys are spread out.
+        for (int offset = 0; offset < stride && found < keys.length; offset++) {
+            for (int slot = offset; slot < this.table.length && found < keys.length; slot += stride) {
+                if (this.table[slot] != BlockKey.NONE) keys[found++] = this.table[slot];
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Used to check if a block is live tnt.
+     *
+     * @param key The packed block key.
+     * @return True if the block is live tnt.
+     */
+    public boolean contains(long key) {
+        final int mask = this.table.length - 1;
+        int slot = TNTBlockIndex.hash(key) & mask;
+
+        while (this.table[slot] != BlockKey.NONE) {
+            if (this.table[slot] == key) return true;
+            slot = (slot + 1) & mask;
+        }
+
+        return false;
+    }
+
+    /**
+     * Used to add a block to the index.
+     *
+     * @param key The packed block key.
+     * @return True if the block was not already indexed.
+     */
+    public boolean add(long key) {
+        final int mask = this.table.length - 1;
+        int slot = TNTBlockIndex.hash(key) & mask;
+
+        while (this.table[slot] != BlockKey.NONE) {
+            if (this.table[slot] == key) return false;
+            slot = (slot + 1) & mask;
+        }
+
+        this.table[slot] = key;
+        this.size++;
+
+        // Keep the load factor under a half.
+        if (this.size * 2 > this.table.length) this.resize(this.table.length * 2);
+        return true;
+    }
+
+    /**
+     * Used to remove a block from the index.
+     *
+     * @param key The packed block key.
+     * @return True if the block was indexed.
+     */
+    public boolean remove(long key) {
+        final int mask = this.table.length - 1;
+        int slot = TNTBlockIndex.hash(key) & mask;
+
+        while (this.table[slot] != key) {
+            if (this.table[slot] == BlockKey.NONE) return false;
+            slot = (slot + 1) & mask;
+        }
+
+        // Shift the following keys back so probing still finds them.
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (this.table[next] != BlockKey.NONE) {
+            final int home = TNTBlockIndex.hash(this.table[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                this.table[gap] = this.table[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        this.table[gap] = BlockKey.NONE;
+        this.size--;
+        return true;
+    }
+
+    /**
+     * Used to remove every block from the index.
+     *
+     * @return This instance.
+     */
+    public @NotNull TNTBlockIndex clear() {
+        Arrays.fill(this.table, BlockKey.NONE);
+        this.size = 0;
+        this.built = false;
+        return this;
+    }
+
+    private void resize(int capacity) {
+        final long[] oldTable = this.table;
+        this.table = TNTBlockIndex.createTable(capacity);
+        this.size = 0;
+
+        for (long key : oldTable) {
+            if (key != BlockKey.NONE) this.add(key);
+        }
+    }
+
+    private static long[] createTable(int capacity) {
+        final long[] table = new long[capacity];
+        Arrays.fill(table, BlockKey.NONE);
+        return table;
+    }
+
+    private static int hash(long key) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static int[][] createNeighbourhood() {
+        final int[][] offsets = new int[75][];
+        int index = 0;
+
+        for (int x = -2; x <= 2; x++) {
+            for (int y = -1; y <= 1; y++) {
+                for (int z = -2; z <= 2; z++) {
+                    offsets[index++] = new int[]{x, y, z};
+                }
+            }
+        }
+
+        Arrays.sort(offsets, Comparator.comparingInt(
+                offset -> offset[0] * offset[0] + offset[1] * offset[1] + offset[2] * offset[2]
+        ));
+        return offsets;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.session;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Represents a timing wheel of decaying blocks.
+ * Blocks are placed in a bucket for the tick they
+ * should decay on, and each tick drains a single bucket.
+ */
+public class TNTDecayQueue {
+
+    private static final int WHEEL_SIZE = 32;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int DEFAULT_BUCKET_CAPACITY = 16;
+
+    private final long[][] buckets;
+    private final int[] bucketSizes;
+    private long tick;
+    private int depth;
+
+    /**
+     * Used to create an empty decay queue.
+     */
+    public TNTDecayQueue() {
+        this.buckets = new long[WHEEL_SIZE][DEFAULT_BUCKET_CAPACITY];
+        this.bucketSizes = new int[WHEEL_SIZE];
+    }
+
+    /**
+     * Used to schedule a block to decay.
+     *
+     * @param key   The packed block key.
+     * @param delay The number of ticks until it decays.
+     *              This must be between 1 and 31.
+     * @return This instance.
+     */
+    public @NotNull TNTDecayQueue schedule(long key, int delay) {
+
+        // Check if the delay fits on the wheel.
+        if (delay < 1 || delay >= WHEEL_SIZE) {
+            throw new IllegalArgumentException("Decay delay must be between 1 and " + WHEEL_MASK + " but was " + delay);
+        }
+
+        final int bucket = (int) ((this.tick + delay) & WHEEL_MASK);
+        final int size = this.bucketSizes[bucket];
+
+        // Grow the bucket if it is full.
+        if (size == this.buckets[bucket].length) {
+            this.buckets[bucket] = Arrays.copyOf(this.buckets[bucket], size * 2);
+        }
+
+        this.buckets[bucket][size] = key;
+        this.bucketSizes[bucket] = size + 1;
+        this.depth++;
+        return this;
+    }
+
+    /**
+     * Used to advance the wheel by one tick and
+     * decay every block in the next bucket.
+     *
+     * @param consumer The consumer to give each block key.
+     * @return The number of blocks that decayed.
+     */
+    public int drain(@NotNull LongConsumer consumer) {
+        this.tick++;
+
+        final int bucket = (int) (this.tick & WHEEL_MASK);
+        final int size = this.bucketSizes[bucket];
+        final long[] keys = this.buckets[bucket];
+
+        for (int index = 0; index < size; index++) {
+            consumer.accept(keys[index]);
+        }
+
+        this.bucketSizes[bucket] = 0;
+        this.depth -= size;
+        return size;
+    }
+
+    /**
+     * Used to remove every block from the queue.
+     *
+     * @return This instance.
+     */
+    public @NotNull TNTDecayQueue clear() {
+        Arrays.fill(this.bucketSizes, 0);
+        this.depth = 0;
+        return this;
+    }
+
+    /**
+     * Used to get the number of blocks waiting to decay.
+     *
+     * @return The queue depth.
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+}
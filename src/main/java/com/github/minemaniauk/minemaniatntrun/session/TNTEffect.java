@@ -0,0 +1,94 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.session;
+
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents the effects shown in a tnt run game.
+ * Critical effects are always sent, other effects
+ * are dropped when the packet budget runs out.
+ */
+public enum TNTEffect {
+    DECAY(Particle.EXPLOSION_NORMAL, Sound.ENTITY_GENERIC_EXPLODE, 0.2F, 1, false),
+    DEATH(Particle.EXPLOSION_LARGE, Sound.PARTICLE_SOUL_ESCAPE, 1, 1, true);
+
+    private final @NotNull Particle particle;
+    private final @NotNull Sound sound;
+    private final float volume;
+    private final float pitch;
+    private final boolean critical;
+
+    TNTEffect(@NotNull Particle particle, @NotNull Sound sound, float volume, float pitch, boolean critical) {
+        this.particle = particle;
+        this.sound = sound;
+        this.volume = volume;
+        this.pitch = pitch;
+        this.critical = critical;
+    }
+
+    /**
+     * Used to get the particle shown for this effect.
+     *
+     * @return The particle.
+     */
+    public @NotNull Particle getParticle() {
+        return this.particle;
+    }
+
+    /**
+     * Used to get the sound played for this effect.
+     *
+     * @return The sound.
+     */
+    public @NotNull Sound getSound() {
+        return this.sound;
+    }
+
+    /**
+     * Used to get the volume of a single effect.
+     * Merged effects are played louder.
+     *
+     * @return The volume.
+     */
+    public float getVolume() {
+        return this.volume;
+    }
+
+    /**
+     * Used to get the pitch of the sound.
+     *
+     * @return The pitch.
+     */
+    public float getPitch() {
+        return this.pitch;
+    }
+
+    /**
+     * Used to check if this effect is always sent.
+     *
+     * @return True if the effect is critical.
+     */
+    public boolean isCritical() {
+        return this.critical;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.session;
+
+import com.github.minemaniauk.minemaniatntrun.BlockKey;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents the dispatcher of effects in a session.
+ * Effects are merged each tick into clusters by area,
+ * and each cluster is sent as one particle and one sound.
+ * <li>Critical clusters are sent first, then the largest clusters.</li>
+ * <li>Each player and the session have a packet budget per tick,
+ * clusters past the budget are dropped.</li>
+ * <li>When every cluster would not fit in the session budget,
+ * each player hears only one non critical sound per tick.</li>
+ * This should only be used on the main server thread.
+ */
+public class TNTEffectsDispatcher {
+
+    private static final int MAX_PARTICLES = 8;
+    private static final @NotNull Comparator<Cluster> ORDER = Comparator
+            .comparing((Cluster cluster) -> !cluster.effect.isCritical())
+            .thenComparingInt(cluster -> -cluster.count);
+
+    private final int clusterSize;
+    private final int playerBudget;
+    private final int sessionBudget;
+    private final double radiusSquared;
+    private final @NotNull Map<TNTEffect, Map<Long, Cluster>> clusterMap;
+    private final @NotNull List<Cluster> clusterList;
+    private final @NotNull Location playerLocation;
+    private final @NotNull Location effectLocation;
+    private int[] playerSent;
+    private boolean[] playerHeard;
+    private int lastSent;
+    private int lastDropped;
+    private boolean degraded;
+
+    /**
+     * Used to create an effects dispatcher.
+     *
+     * @param clusterSize   The size of the cube effects are merged within.
+     * @param playerBudget  The most packets sent to one player each tick.
+     * @param sessionBudget The most packets sent for the session each tick.
+     * @param radius        How far away players can see and hear effects.
+     */
+    public TNTEffectsDispatcher(int clusterSize, int playerBudget, int sessionBudget, double radius) {
+        this.clusterSize = Math.max(1, clusterSize);
+        this.playerBudget = playerBudget;
+        this.sessionBudget = sessionBudget;
+        this.radiusSquared = radius * radius;
+        this.clusterMap = new EnumMap<>(TNTEffect.class);
+        this.clusterList = new ArrayList<>();
+        this.playerLocation = new Location(null, 0, 0, 0);
+        this.effectLocation = new Location(null, 0, 0, 0);
+        this.playerSent = new int[0];
+        this.playerHeard = new boolean[0];
+    }
+
+    /**
+     * Used to queue an effect for the next flush.
+     *
+     * @param effect   The effect to show.
+     * @param location The location of the effect.
+     * @return This instance.
+     */
+    public @NotNull TNTEffectsDispatcher play(@NotNull TNTEffect effect, @NotNull Location location) {
+        if (location.getWorld() == null) return this;
+
+        // Merge the effect into the cluster for its area.
+        final long key = BlockKey.pack(
+                Math.floorDiv(location.getBlockX(), this.clusterSize),
+                Math.floorDiv(location.getBlockY(), this.clusterSize),
+                Math.floorDiv(location.getBlockZ(), this.clusterSize)
+        );
+
+        final Map<Long, Cluster> effectMap = this.clusterMap.computeIfAbsent(effect, type -> new HashMap<>());
+        Cluster cluster = effectMap.get(key);
+        if (cluster == null) {
+            cluster = new Cluster(effect, location.getWorld());
+            effectMap.put(key, cluster);
+            this.clusterList.add(cluster);
+        }
+
+        cluster.add(location.getX(), location.getY(), location.getZ());
+        return this;
+    }
+
+    /**
+     * Used to send the queued clusters to the players.
+     *
+     * @param playerList The players that can see the effects.
+     * @return The number of packets sent.
+     */
+    public int flush(@NotNull List<Player> playerList) {
+        if (this.clusterList.isEmpty()) return 0;
+
+        // Reset the budget of each player.
+        final int players = playerList.size();
+        if (this.playerSent.length < players) {
+            this.playerSent = new int[players];
+            this.playerHeard = new boolean[players];
+        }
+        Arrays.fill(this.playerSent, 0, players, 0);
+        Arrays.fill(this.playerHeard, 0, players, false);
+
+        this.clusterList.sort(ORDER);
+        this.degraded = (long) this.clusterList.size() * 2 * players > this.sessionBudget;
+
+        int sent = 0;
+        int dropped = 0;
+
+        for (Cluster cluster : this.clusterList) {
+            final boolean critical = cluster.effect.isCritical();
+            this.effectLocation.setWorld(cluster.world);
+            this.effectLocation.setX(cluster.sumX / cluster.count);
+            this.effectLocation.setY(cluster.sumY / cluster.count);
+            this.effectLocation.setZ(cluster.sumZ / cluster.count);
+
+            // Spread merged particles over the cluster.
+            final double spread = cluster.count == 1 ? 0 : this.clusterSize / 4.0;
+            final float volume = Math.min(1F, cluster.effect.getVolume() * (float) Math.sqrt(cluster.count));
+
+            for (int index = 0; index < players; index++) {
+                final Player player = playerList.get(index);
+                player.getLocation(this.playerLocation);
+                if (this.playerLocation.getWorld() != cluster.world) continue;
+                if (this.playerLocation.distanceSquared(this.effectLocation) > this.radiusSquared) continue;
+
+                // Check if the budget has run out.
+                if (!critical && !this.hasBudget(index, sent)) {
+                    dropped++;
+                    continue;
+                }
+
+                player.spawnParticle(cluster.effect.getParticle(), this.effectLocation,
+                        Math.min(cluster.count, MAX_PARTICLES), spread, spread, spread, 0);
+                this.playerSent[index]++;
+                sent++;
+
+                // Check if the sound should be left out.
+                if (!critical && (!this.hasBudget(index, sent) || (this.degraded && this.playerHeard[index]))) continue;
+
+                player.playSound(this.effectLocation, cluster.effect.getSound(), volume, cluster.effect.getPitch());
+                this.playerSent[index]++;
+                this.playerHeard[index] = true;
+                sent++;
+            }
+        }
+
+        for (Map<Long, Cluster> effectMap : this.clusterMap.values()) effectMap.clear();
+        this.clusterList.clear();
+        this.lastSent = sent;
+        this.lastDropped = dropped;
+        return sent;
+    }
+
+    /**
+     * Used to forget every queued effect.
+     *
+     * @return This instance.
+     */
+    public @NotNull TNTEffectsDispatcher clear() {
+        for (Map<Long, Cluster> effectMap : this.clusterMap.values()) effectMap.clear();
+        this.clusterList.clear();
+        return this;
+    }
+
+    /**
+     * Used to get the number of packets sent on the last flush.
+     *
+     * @return The number of packets sent.
+     */
+    public int getLastSent() {
+        return this.lastSent;
+    }
+
+    /**
+     * Used to get the number of effects dropped
+     * for players on the last flush.
+     *
+     * @return The number of dropped effects.
+     */
+    public int getLastDropped() {
+        return this.lastDropped;
+    }
+
+    /**
+     * Used to check if sounds were merged further on
+     * the last flush to stay within the budget.
+     *
+     * @return True if the effects were degraded.
+     */
+    public boolean isDegraded() {
+        return this.degraded;
+    }
+
+    private boolean hasBudget(int playerIndex, int sent) {
+        return this.playerSent[playerIndex] < this.playerBudget && sent < this.sessionBudget;
+    }
+
+    /**
+     * Represents the effects of one type merged in an area.
+     */
+    private static class Cluster {
+
+        private final @NotNull TNTEffect effect;
+        private final @NotNull World world;
+        private int count;
+        private double sumX;
+        private double sumY;
+        private double sumZ;
+
+        private Cluster(@NotNull TNTEffect effect, @NotNull World world) {
+            this.effect = effect;
+            this.world = world;
+        }
+
+        private void add(double x, double y, double z) {
+            this.count++;
+            this.sumX += x;
+            this.sumY += y;
+            this.sumZ += z;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.session;
+
+import com.github.cozyplugins.cozylibrary.location.Region3D;
+import org.bukkit.Location;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents the height a player has to fall
+ * below to be out of the game, and the area
+ * of the arena it applies to.
+ * This is worked out once per session so checking
+ * a player only compares block coordinates.
+ */
+public class TNTKillPlane {
+
+    /**
+     * The distance above the bottom of the arena
+     * a player is counted as fallen.
+     */
+    private static final int FLOOR_HEIGHT = 10;
+
+    /**
+     * The distance around the arena
+     * the kill plane reaches.
+     */
+    private static final int FOOTPRINT_MARGIN = 200;
+
+    private final int y;
+    private final int minX;
+    private final int maxX;
+    private final int minZ;
+    private final int maxZ;
+
+    /**
+     * Used to create a kill plane.
+     *
+     * @param y    The highest block y a player is counted as fallen at.
+     * @param minX The lowest block x it applies to.
+     * @param maxX The highest block x it applies to.
+     * @param minZ The lowest block z it applies to.
+     * @param maxZ The highest block z it applies to.
+     */
+    public TNTKillPlane(int y, int minX, int maxX, int minZ, int maxZ) {
+        this.y = y;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minZ = minZ;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * Used to check if a player standing on
+     * this block has fallen out of the game.
+     *
+     * @param x The block x coordinate.
+     * @param y The block y coordinate.
+     * @param z The block z coordinate.
+     * @return True if the player has fallen.
+     */
+    public boolean hasFallen(int x, int y, int z) {
+        return y <= this.y
+                && x >= this.minX && x <= this.maxX
+                && z >= this.minZ && z <= this.maxZ;
+    }
+
+    /**
+     * Used to get the highest block y a
+     * player is counted as fallen at.
+     *
+     * @return The kill plane y.
+     */
+    public int getY() {
+        return this.y;
+    }
+
+    /**
+     * Used to create the kill plane for an arena.
+     * The plane sits just above the bottom of the arena,
+     * but never at or above the lowest layer of tnt.
+     *
+     * @param region The arena's region.
+     * @param index  The index of the tnt in the arena.
+     * @return The kill plane.
+     */
+    public static @NotNull TNTKillPlane of(@NotNull Region3D region, @NotNull TNTBlockIndex index) {
+        final Location min = region.getMinPoint();
+        final Location max = region.getMaxPoint();
+
+        int y = min.getBlockY() + FLOOR_HEIGHT;
+        if (index.size() > 0) y = Math.min(y, index.getLowestY() - 1);
+
+        return new TNTKillPlane(
+                y,
+                min.getBlockX() - FOOTPRINT_MARGIN,
+                max.getBlockX() + FOOTPRINT_MARGIN,
+                min.getBlockZ() - FOOTPRINT_MARGIN,
+                max.getBlockZ() + FOOTPRINT_MARGIN
+        );
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.session;
+
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Represents the roster of players in a session.
+ * Each player is given a slot the first time they join,
+ * and whether they are online, have joined or are alive
+ * is kept as a bit for that slot.
+ * Iterating over living players or spectators only
+ * walks the set bits and creates no objects.
+ */
+public class TNTRoster {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final @NotNull Map<UUID, Integer> slotMap;
+    private final @NotNull BitSet online;
+    private final @NotNull BitSet joined;
+    private final @NotNull BitSet alive;
+    private UUID[] uuids;
+    private Player[] players;
+    private int aliveCount;
+
+    /**
+     * Used to create an empty roster.
+     */
+    public TNTRoster() {
+        this.slotMap = new HashMap<>();
+        this.online = new BitSet();
+        this.joined = new BitSet();
+        this.alive = new BitSet();
+        this.uuids = new UUID[DEFAULT_CAPACITY];
+        this.players = new Player[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Used to get a player's slot, giving
+     * them one if they do not have one yet.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The player's slot.
+     */
+    public int assign(@NotNull UUID playerUuid) {
+        final Integer existing = this.slotMap.get(playerUuid);
+        if (existing != null) return existing;
+
+        final int slot = this.slotMap.size();
+
+        // Grow the slot arrays if they are full.
+        if (slot == this.uuids.length) {
+            this.uuids = Arrays.copyOf(this.uuids, slot * 2);
+            this.players = Arrays.copyOf(this.players, slot * 2);
+        }
+
+        this.uuids[slot] = playerUuid;
+        this.slotMap.put(playerUuid, slot);
+        return slot;
+    }
+
+    /**
+     * Used to get a player's slot.
+     *
+     * @param playerUuid The player's uuid.
+     * @return The player's slot or -1 if they have none.
+     */
+    public int getSlot(@NotNull UUID playerUuid) {
+        final Integer slot = this.slotMap.get(playerUuid);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Used to mark a player as online.
+     *
+     * @param player The instance of the player.
+     * @return This instance.
+     */
+    public @NotNull TNTRoster setOnline(@NotNull Player player) {
+        final int slot = this.assign(player.getUniqueId());
+        this.players[slot] = player;
+        this.online.set(slot);
+        return this;
+    }
+
+    /**
+     * Used to mark a player as offline.
+     *
+     * @param playerUuid The player's uuid.
+     * @return This instance.
+     */
+    public @NotNull TNTRoster setOffline(@NotNull UUID playerUuid) {
+        final int slot = this.getSlot(playerUuid);
+        if (slot == -1) return this;
+
+        this.players[slot] = null;
+        this.online.clear(slot);
+        return this;
+    }
+
+    /**
+     * Used to mark a player as joined.
+     *
+     * @param playerUuid The player's uuid.
+     * @return True if the player had not joined before.
+     */
+    public boolean setJoined(@NotNull UUID playerUuid) {
+        final int slot = this.assign(playerUuid);
+        if (this.joined.get(slot)) return false;
+
+        this.joined.set(slot);
+        return true;
+    }
+
+    /**
+     * Used to set if a player is alive.
+     *
+     * @param playerUuid The player's uuid.
+     * @param isAlive    True if the player is alive.
+     * @return This instance.
+     */
+    public @NotNull TNTRoster setAlive(@NotNull UUID playerUuid, boolean isAlive) {
+        final int slot = isAlive ? this.assign(playerUuid) : this.getSlot(playerUuid);
+        if (slot == -1 || this.alive.get(slot) == isAlive) return this;
+
+        this.alive.set(slot, isAlive);
+        this.aliveCount += isAlive ? 1 : -1;
+        return this;
+    }
+
+    /**
+     * Used to check if a player is alive.
+     *
+     * @param playerUuid The player's uuid.
+     * @return True if the player is alive.
+     */
+    public boolean isAlive(@NotNull UUID playerUuid) {
+        final int slot = this.getSlot(playerUuid);
+        return slot != -1 && this.alive.get(slot);
+    }
+
+    /**
+     * Used to get the number of players alive.
+     *
+     * @return The number of players alive.
+     */
+    public int getAliveCount() {
+        return this.aliveCount;
+    }
+
+    /**
+     * Used to get the first living player.
+     *
+     * @return The player's uuid or null if no one is alive.
+     */
+    public @Nullable UUID getFirstAlive() {
+        final int slot = this.alive.nextSetBit(0);
+        return slot == -1 ? null : this.uuids[slot];
+    }
+
+    /**
+     * Used to get the uuids of the living players.
+     *
+     * @return A new list of living players.
+     */
+    public @NotNull List<UUID> getAliveUuids() {
+        final List<UUID> uuidList = new ArrayList<>(this.aliveCount);
+        for (int slot = this.alive.nextSetBit(0); slot >= 0; slot = this.alive.nextSetBit(slot + 1)) {
+            uuidList.add(this.uuids[slot]);
+        }
+        return uuidList;
+    }
+
+    /**
+     * Used to run a consumer for every
+     * online player that is alive.
+     * Players may be killed by the consumer.
+     *
+     * @param consumer The consumer to give each player.
+     * @return This instance.
+     */
+    public @NotNull TNTRoster forEachAlive(@NotNull Consumer<Player> consumer) {
+        for (int slot = this.alive.nextSetBit(0); slot >= 0; slot = this.alive.nextSetBit(slot + 1)) {
+            if (this.online.get(slot)) consumer.accept(this.players[slot]);
+        }
+        return this;
+    }
+
+    /**
+     * Used to run a consumer for every
+     * online player that is not alive.
+     *
+     * @param consumer The consumer to give each player.
+     * @return This instance.
+     */
+    public @NotNull TNTRoster forEachSpectator(@NotNull Consumer<Player> consumer) {
+        for (int slot = this.online.nextSetBit(0); slot >= 0; slot = this.online.nextSetBit(slot + 1)) {
+            if (!this.alive.get(slot)) consumer.accept(this.players[slot]);
+        }
+        return this;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.session;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
+import org.bukkit.scoreboard.Criteria;
+import org.bukkit.scoreboard.DisplaySlot;
+import org.bukkit.scoreboard.Objective;
+import org.bukkit.scoreboard.Scoreboard;
+import org.bukkit.scoreboard.Team;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Objects;
+
+/**
+ * Represents a scoreboard shared by every player in a session.
+ * Each line is a team prefix, so when a frame is rendered
+ * only the lines that changed are sent to the players.
+ */
+public class TNTScoreboardRenderer {
+
+    private static final int MAX_LINES = 15;
+
+    private final @NotNull Scoreboard scoreboard;
+    private final @NotNull Objective objective;
+    private final @NotNull Team[] teamList;
+    private final @NotNull String[] entryList;
+    private final @NotNull String[] lineList;
+    private int lineCount;
+
+    /**
+     * Used to create a scoreboard renderer.
+     * This must be called on the main thread.
+     *
+     * @param title The title of the scoreboard.
+     */
+    public TNTScoreboardRenderer(@NotNull String title) {
+        this.scoreboard = Objects.requireNonNull(Bukkit.getScoreboardManager()).getNewScoreboard();
+        this.objective = this.scoreboard.registerNewObjective("tntrun", Criteria.DUMMY, ChatColor.translateAlternateColorCodes('&', title));
+        this.objective.setDisplaySlot(DisplaySlot.SIDEBAR);
+
+        this.teamList = new Team[MAX_LINES];
+        this.entryList = new String[MAX_LINES];
+        this.lineList = new String[MAX_LINES];
+
+        // Give each line a unique invisible entry.
+        for (int index = 0; index < MAX_LINES; index++) {
+            this.entryList[index] = ChatColor.values()[index].toString() + ChatColor.RESET;
+            this.teamList[index] = this.scoreboard.registerNewTeam("line" + index);
+            this.teamList[index].addEntry(this.entryList[index]);
+        }
+    }
+
+    /**
+     * Used to render a frame onto the scoreboard.
+     * Only the lines that are different from the
+     * last frame are updated.
+     *
+     * @param frame The lines of the frame.
+     * @return True if anything changed.
+     */
+    public boolean render(@NotNull String... frame) {
+        final int newLineCount = Math.min(frame.length, MAX_LINES);
+        boolean changed = false;
+
+        // Check if the number of lines has changed.
+        if (newLineCount != this.lineCount) {
+            for (int index = newLineCount; index < this.lineCount; index++) {
+                this.scoreboard.resetScores(this.entryList[index]);
+                this.lineList[index] = null;
+            }
+            for (int index = 0; index < newLineCount; index++) {
+                this.objective.getScore(this.entryList[index]).setScore(newLineCount - index);
+            }
+            this.lineCount = newLineCount;
+            changed = true;
+        }
+
+        // Update the lines that have changed.
+        for (int index = 0; index < newLineCount; index++) {
+            if (frame[index].equals(this.lineList[index])) continue;
+            this.lineList[index] = frame[index];
+            this.teamList[index].setPrefix(ChatColor.translateAlternateColorCodes('&', frame[index]));
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Used to show the scoreboard to a player.
+     * Nothing is sent if they can already see it.
+     *
+     * @param player The instance of the player.
+     * @return This instance.
+     */
+    public @NotNull TNTScoreboardRenderer show(@NotNull Player player) {
+        if (player.getScoreboard() == this.scoreboard) return this;
+        player.setScoreboard(this.scoreboard);
+        return this;
+    }
+
+    /**
+     * Used to give a player the main scoreboard back
+     * if they are looking at this one.
+     *
+     * @param player The instance of the player.
+     * @return This instance.
+     */
+    public @NotNull TNTScoreboardRenderer hide(@NotNull Player player) {
+        if (player.getScoreboard() != this.scoreboard) return this;
+        player.setScoreboard(Objects.requireNonNull(Bukkit.getScoreboardManager()).getMainScoreboard());
+        return this;
+    }
+}
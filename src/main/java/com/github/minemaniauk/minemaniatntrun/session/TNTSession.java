@@ -21,24 +21,27 @@ package com.github.minemaniauk.minemaniatntrun.session;
 
 import com.github.cozyplugins.cozylibrary.user.PlayerUser;
 import com.github.minemaniauk.api.MineManiaLocation;
-import com.github.minemaniauk.api.database.collection.UserCollection;
-import com.github.minemaniauk.api.database.record.GameRoomRecord;
 import com.github.minemaniauk.api.game.session.Session;
 import com.github.minemaniauk.api.user.MineManiaUser;
 import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import com.github.minemaniauk.minemaniatntrun.arena.ArenaRestoreJournal;
 import com.github.minemaniauk.minemaniatntrun.arena.TNTArena;
 import com.github.minemaniauk.minemaniatntrun.arena.TNTArenaFactory;
 import com.github.minemaniauk.minemaniatntrun.session.component.*;
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
-import org.bukkit.Particle;
-import org.bukkit.Sound;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -46,10 +49,18 @@ import java.util.UUID;
  */
 public class TNTSession extends Session<TNTArena> {
 
-    private final @NotNull List<UUID> playersAlive;
-    private final @NotNull List<UUID> playersJoined;
+    private final @NotNull TNTRoster roster;
+    private final @NotNull TNTBlockIndex tntIndex;
+    private final @NotNull ArenaRestoreJournal restoreJournal;
+    private final @NotNull TNTEffectsDispatcher effects;
+    private final @NotNull Set<UUID> members;
+    private @NotNull Set<UUID> gameRoomMembers;
+    private final @NotNull Deque<UUID> pendingJoins;
+    private TNTKillPlane killPlane;
+    private @NotNull List<Player> onlinePlayers;
     private @NotNull TNTStatus status;
     private UUID winnerUuid;
+    private String winnerName;
     private int pawReward;
 
     /**
@@ -58,10 +69,32 @@ public class TNTSession extends Session<TNTArena> {
      * @param arenaIdentifier The arena's identifier.
      */
     public TNTSession(@NotNull UUID arenaIdentifier) {
+        this(arenaIdentifier, new TNTBlockIndex());
+    }
+
+    /**
+     * Used to create a new tnt session for an
+     * arena that has already been indexed.
+     *
+     * @param arenaIdentifier The arena's identifier.
+     * @param tntIndex        The index of the tnt in the arena.
+     */
+    public TNTSession(@NotNull UUID arenaIdentifier, @NotNull TNTBlockIndex tntIndex) {
         super(arenaIdentifier, new TNTArenaFactory());
 
-        this.playersAlive = new ArrayList<>();
-        this.playersJoined = new ArrayList<>();
+        this.roster = new TNTRoster();
+        this.tntIndex = tntIndex;
+        this.restoreJournal = MineManiaTNTRun.getInstance().getArenaRestoreManager().getJournal(arenaIdentifier);
+        this.effects = new TNTEffectsDispatcher(
+                MineManiaTNTRun.getInstance().getConfig().getInt("effects.cluster_size", 4),
+                MineManiaTNTRun.getInstance().getConfig().getInt("effects.player_packets_per_tick", 8),
+                MineManiaTNTRun.getInstance().getConfig().getInt("effects.session_packets_per_tick", 64),
+                MineManiaTNTRun.getInstance().getConfig().getDouble("effects.radius", 32)
+        );
+        this.members = new LinkedHashSet<>();
+        this.gameRoomMembers = Set.of();
+        this.pendingJoins = new ArrayDeque<>();
+        this.onlinePlayers = List.of();
         this.status = TNTStatus.WAITING;
 
         // Add components.
@@ -84,21 +117,22 @@ public class TNTSession extends Session<TNTArena> {
      */
     public @NotNull TNTSession startGame() {
 
+        // Make sure no game room change was missed.
+        MineManiaTNTRun.getInstance().getMembershipTracker().reconcile(this);
+
         // Add all online players.
-        this.playersAlive.addAll(this.getOnlinePlayers()
-                .stream()
-                .map(Player::getUniqueId)
-                .toList()
-        );
+        for (Player player : this.getOnlinePlayers()) {
+            this.roster.setAlive(player.getUniqueId(), true);
+        }
 
         // Check if there are enough players to start the game.
-        if (this.playersAlive.size() <= 1) {
+        if (this.roster.getAliveCount() <= 1) {
             this.endGameFully();
             return this;
         }
 
         // Set paw reward.
-        this.pawReward = (this.playersAlive.size() - 1) * 10;
+        this.pawReward = (this.roster.getAliveCount() - 1) * 10;
 
         // Start removing tnt.
         this.getComponent(TNTRemovalComponent.class).start();
@@ -122,15 +156,7 @@ public class TNTSession extends Session<TNTArena> {
         this.setStatus(TNTStatus.END);
 
         // Give the winner the correct amount of paws.
-        MineManiaTNTRun.getAPI().getDatabase()
-                .getTable(UserCollection.class)
-                .getUserRecord(winnerUuid)
-                .ifPresent(user -> {
-                    user.addPaws(this.pawReward);
-                    MineManiaTNTRun.getAPI().getDatabase()
-                            .getTable(UserCollection.class)
-                            .insertRecord(user);
-                });
+        MineManiaTNTRun.getInstance().getRewardLedger().credit(winnerUuid, this.pawReward);
 
         MineManiaTNTRun.getInstance()
                 .getOnlinePlayer(winnerUuid)
@@ -162,7 +188,7 @@ public class TNTSession extends Session<TNTArena> {
     }
 
     public @NotNull TNTSession onPlayerJoin(@NotNull Player player) {
-        this.playersJoined.add(player.getUniqueId());
+        this.roster.setJoined(player.getUniqueId());
 
         PlayerUser user = new PlayerUser(player);
         user.sendMessage(List.of(
@@ -177,6 +203,130 @@ public class TNTSession extends Session<TNTArena> {
         return this;
     }
 
+    /**
+     * Called when a game room player comes online
+     * or moves into the arena's world.
+     * <li>Players joining or rejoining while waiting are queued to be welcomed.</li>
+     * <li>Players joining or rejoining during the game become spectators.</li>
+     *
+     * @param player The instance of the player.
+     * @return This instance.
+     */
+    public @NotNull TNTSession onMemberJoin(@NotNull Player player) {
+        if (!this.members.add(player.getUniqueId())) return this;
+        this.roster.setOnline(player);
+        this.rebuildOnlinePlayers();
+
+        // Check if the game has already started.
+        if (this.status != TNTStatus.WAITING) {
+            this.getComponent(TNTSpectatorComponent.class).onSpectator(player);
+            return this;
+        }
+
+        this.pendingJoins.add(player.getUniqueId());
+        return this;
+    }
+
+    /**
+     * Called when a member of the session goes offline.
+     *
+     * @param playerUuid The player's uuid.
+     * @return This instance.
+     */
+    public @NotNull TNTSession onMemberLeave(@NotNull UUID playerUuid) {
+        if (!this.members.remove(playerUuid)) return this;
+        this.pendingJoins.remove(playerUuid);
+        this.roster.setOffline(playerUuid);
+        this.rebuildOnlinePlayers();
+
+        // Check if the player was still in the game.
+        if (this.roster.isAlive(playerUuid)) this.onDisconnect(playerUuid);
+        return this;
+    }
+
+    /**
+     * Used to get the next player that joined and
+     * has not been welcomed yet.
+     *
+     * @return The player or null if there are none.
+     */
+    public @Nullable Player pollJoinedPlayer() {
+        UUID playerUuid;
+        while ((playerUuid = this.pendingJoins.poll()) != null) {
+            Player player = MineManiaTNTRun.getInstance().getPlayerRoster().getPlayer(playerUuid);
+            if (player != null) return player;
+        }
+        return null;
+    }
+
+    /**
+     * Used to get the list of new players joined
+     * that have not been welcomed yet.
+     * Membership is tracked from events, so this
+     * only reads the queue of pending joins.
+     *
+     * @return The list of new players joined.
+     */
+    public @NotNull List<Player> getPlayersJoined() {
+        List<Player> playerList = new ArrayList<>(this.pendingJoins.size());
+
+        for (UUID playerUuid : this.pendingJoins) {
+            Player player = MineManiaTNTRun.getInstance().getPlayerRoster().getPlayer(playerUuid);
+            if (player != null) playerList.add(player);
+        }
+
+        return playerList;
+    }
+
+    /**
+     * Used to get the list of disconnected players.
+     * These are the living players that are no
+     * longer members of the session.
+     *
+     * @return The list of disconnected players.
+     */
+    public @NotNull List<UUID> getDisconnectedPlayers() {
+        List<UUID> playerUuidList = new ArrayList<>();
+
+        for (UUID playerUuid : this.roster.getAliveUuids()) {
+            if (this.members.contains(playerUuid)) continue;
+            playerUuidList.add(playerUuid);
+        }
+
+        return playerUuidList;
+    }
+
+    /**
+     * Used to check if a player is in this session's game room.
+     * This uses the members from the last reconcile.
+     *
+     * @param playerUuid The player's uuid.
+     * @return True if the player is in the game room.
+     */
+    public boolean isGameRoomMember(@NotNull UUID playerUuid) {
+        return this.gameRoomMembers.contains(playerUuid);
+    }
+
+    /**
+     * Used to set the players in this session's game room.
+     *
+     * @param gameRoomMembers The uuids of the game room players.
+     * @return This instance.
+     */
+    public @NotNull TNTSession setGameRoomMembers(@NotNull Set<UUID> gameRoomMembers) {
+        this.gameRoomMembers = Set.copyOf(gameRoomMembers);
+        return this;
+    }
+
+    /**
+     * Used to get the uuids of the online game room players.
+     *
+     * @return The unmodifiable set of members.
+     */
+    public @NotNull Set<UUID> getMembers() {
+        return Collections.unmodifiableSet(this.members);
+    }
+
     /**
      * Called when a player dies.
      *
@@ -185,17 +335,15 @@ public class TNTSession extends Session<TNTArena> {
      */
     public @NotNull TNTSession onPlayerDeath(@NotNull Player player) {
         // Spawn particles and play sound.
-        if (player.getLocation().getWorld() != null) {
-            player.getLocation().getWorld().spawnParticle(Particle.EXPLOSION_LARGE, player.getLocation(), 1);
-            player.getLocation().getWorld().playSound(player.getLocation(), Sound.PARTICLE_SOUL_ESCAPE, 1, 1);
-        }
+        this.effects.play(TNTEffect.DEATH, player.getLocation());
 
-        // Remove from ths living player list.
-        this.playersAlive.remove(player.getUniqueId());
+        // Remove from ths living players.
+        this.roster.setAlive(player.getUniqueId(), false);
+        this.getComponent(TNTSpectatorComponent.class).onSpectator(player);
 
         // Check if the number of players is now 1.
-        if (this.playersAlive.size() == 1) {
-            this.endGame(this.playersAlive.get(0));
+        if (this.roster.getAliveCount() == 1) {
+            this.endGame(Objects.requireNonNull(this.roster.getFirstAlive()));
         }
         return this;
     }
@@ -207,11 +355,11 @@ public class TNTSession extends Session<TNTArena> {
      * @return This instance.
      */
     public @NotNull TNTSession onDisconnect(UUID uuid) {
-        this.playersAlive.remove(uuid);
+        this.roster.setAlive(uuid, false);
 
         // Check if the number of players is now 1.
-        if (this.playersAlive.size() == 1) {
-            this.endGame(this.playersAlive.get(0));
+        if (this.roster.getAliveCount() == 1) {
+            this.endGame(Objects.requireNonNull(this.roster.getFirstAlive()));
         }
         return this;
     }
@@ -219,10 +367,10 @@ public class TNTSession extends Session<TNTArena> {
     /**
      * Used to get the list of player uuid's that is alive.
      *
-     * @return The list of living players.
+     * @return A new list of living players.
      */
     public @NotNull List<UUID> getAlivePlayerUUIDList() {
-        return this.playersAlive;
+        return this.roster.getAliveUuids();
     }
 
     /**
@@ -231,13 +379,72 @@ public class TNTSession extends Session<TNTArena> {
      * @return The list of living players.
      */
     public @NotNull List<Player> getAlivePlayers() {
-        List<Player> playerList = new ArrayList<>();
+        List<Player> playerList = new ArrayList<>(this.roster.getAliveCount());
+        this.roster.forEachAlive(playerList::add);
+        return playerList;
+    }
 
-        this.getOnlinePlayers().forEach(player -> {
-            if (this.playersAlive.contains(player.getUniqueId())) playerList.add(player);
-        });
+    /**
+     * Used to check if a player is still in the game.
+     *
+     * @param playerUuid The player's uuid.
+     * @return True if the player is alive.
+     */
+    public boolean isAlive(@NotNull UUID playerUuid) {
+        return this.roster.isAlive(playerUuid);
+    }
 
-        return playerList;
+    /**
+     * Used to get the roster of players in the session.
+     * Components that run every tick should iterate the
+     * roster rather than asking for a list of players.
+     *
+     * @return The session roster.
+     */
+    public @NotNull TNTRoster getRoster() {
+        return this.roster;
+    }
+
+    /**
+     * Used to get the index of live tnt in the arena.
+     *
+     * @return The tnt block index.
+     */
+    public @NotNull TNTBlockIndex getTntIndex() {
+        return this.tntIndex;
+    }
+
+    /**
+     * Used to get the kill plane of the arena.
+     * This is worked out the first time it is needed,
+     * once the tnt has been indexed.
+     *
+     * @return The kill plane.
+     */
+    public @NotNull TNTKillPlane getKillPlane() {
+        if (this.killPlane == null) {
+            this.killPlane = TNTKillPlane.of(this.getArena().getRegion(), this.tntIndex);
+        }
+        return this.killPlane;
+    }
+
+    /**
+     * Used to get the journal of blocks changed in the arena.
+     *
+     * @return The arena's restore journal.
+     */
+    public @NotNull ArenaRestoreJournal getRestoreJournal() {
+        return this.restoreJournal;
+    }
+
+    /**
+     * Used to get the dispatcher that merges and
+     * sends the effects of this session.
+     *
+     * @return The effects dispatcher.
+     */
+    public @NotNull TNTEffectsDispatcher getEffects() {
+        return this.effects;
     }
 
     /**
@@ -249,9 +456,18 @@ public class TNTSession extends Session<TNTArena> {
         return this.status;
     }
 
+    /**
+     * Used to get the name of the winner.
+     * The name is looked up once and then cached.
+     *
+     * @return The winner's name.
+     */
     public @NotNull String getWinnerName() {
         if (this.winnerUuid == null) return "None";
-        return Objects.requireNonNull(Bukkit.getOfflinePlayer(this.winnerUuid).getName());
+        if (this.winnerName == null) {
+            this.winnerName = Objects.requireNonNull(Bukkit.getOfflinePlayer(this.winnerUuid).getName());
+        }
+        return this.winnerName;
     }
 
     /**
@@ -267,30 +483,13 @@ public class TNTSession extends Session<TNTArena> {
 
     /**
      * Used to get the list of online players.
+     * The list is shared and only rebuilt when
+     * a member joins or leaves.
      *
-     * @return The list of online players.
+     * @return The unmodifiable list of online players.
      */
     public @NotNull List<Player> getOnlinePlayers() {
-
-        // Get the instance of the game room record.
-        GameRoomRecord gameRoomRecord = this.getArena().getGameRoom().orElse(null);
-
-        // Check if the game room no longer exists.
-        if (gameRoomRecord == null) {
-            return new ArrayList<>();
-        }
-
-        // Create the instance of the list.
-        List<Player> playerList = new ArrayList<>();
-
-        // Add the online players.
-        gameRoomRecord.getPlayers().forEach(
-                user -> MineManiaTNTRun.getInstance()
-                        .getOnlinePlayer(user.getUniqueId())
-                        .ifPresent(playerList::add)
-        );
-
-        return playerList;
+        return this.onlinePlayers;
     }
 
     /**
@@ -300,45 +499,23 @@ public class TNTSession extends Session<TNTArena> {
      */
     public @NotNull List<Player> getSpectators() {
         List<Player> playerList = new ArrayList<>();
-
-        for (Player player : this.getOnlinePlayers()) {
-            if (this.getAlivePlayerUUIDList().contains(player.getUniqueId())) continue;
-            playerList.add(player);
-        }
-
+        this.roster.forEachSpectator(playerList::add);
         return playerList;
     }
 
     /**
-     * Used to get the list of disconnected players.
-     *
-     * @return The list of disconnected players.
-     */
-    public @NotNull List<UUID> getDisconnectedPlayers() {
-        List<UUID> playerUuidList = new ArrayList<>();
-
-        for (UUID playerUuid : this.playersAlive) {
-            if (this.getOnlinePlayers().stream().map(Player::getUniqueId).toList().contains(playerUuid)) continue;
-            playerUuidList.add(playerUuid);
-        }
-
-        return playerUuidList;
-    }
-
-    /**
-     * Used to get the list of new players joined.
-     *
-     * @return The list of new players joined.
+     * Used to rebuild the list of online players
+     * from the current members.
      */
-    public @NotNull List<Player> getPlayersJoined() {
-        List<Player> playerUuidList = new ArrayList<>();
+    private void rebuildOnlinePlayers() {
+        List<Player> playerList = new ArrayList<>(this.members.size());
 
-        for (Player player : this.getOnlinePlayers()) {
-            if (this.playersJoined.contains(player.getUniqueId())) continue;
-            playerUuidList.add(player);
+        for (UUID playerUuid : this.members) {
+            Player player = MineManiaTNTRun.getInstance().getPlayerRoster().getPlayer(playerUuid);
+            if (player != null) playerList.add(player);
         }
 
-        return playerUuidList;
+        this.onlinePlayers = Collections.unmodifiableList(playerList);
     }
 
     /**
@@ -347,6 +524,6 @@ public class TNTSession extends Session<TNTArena> {
      * @return The number of players alive.
      */
     public int getAmountOfPlayersAlive() {
-        return this.playersAlive.size();
+        return this.roster.getAliveCount();
     }
 }
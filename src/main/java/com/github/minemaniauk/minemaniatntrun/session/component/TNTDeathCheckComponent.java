@@ -19,18 +19,17 @@
 
 package com.github.minemaniauk.minemaniatntrun.session.component;
 
-import com.github.cozyplugins.cozylibrary.location.Region3D;
-import com.github.cozyplugins.cozylibrary.task.TaskContainer;
 import com.github.minemaniauk.api.game.session.Session;
-import com.github.minemaniauk.api.game.session.SessionComponent;
 import com.github.minemaniauk.minemaniatntrun.arena.TNTArena;
+import com.github.minemaniauk.minemaniatntrun.session.TNTKillPlane;
 import com.github.minemaniauk.minemaniatntrun.session.TNTSession;
+import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.UUID;
+import java.util.function.Consumer;
 
-public class TNTDeathCheckComponent extends TaskContainer implements SessionComponent<TNTArena> {
+public class TNTDeathCheckComponent extends TNTTickingComponent {
 
     private static final @NotNull String TNT_DEATH = "TNT_DEATH";
 
@@ -53,21 +52,17 @@ public class TNTDeathCheckComponent extends TaskContainer implements SessionComp
     @Override
     public void start() {
 
-        this.runTaskLoop(TNT_DEATH, () -> {
+        final TNTKillPlane killPlane = this.getSession().getKillPlane();
+        final Location location = new Location(null, 0, 0, 0);
 
-            for (UUID uuid : this.getSession().getDisconnectedPlayers()) {
-                this.getSession().onDisconnect(uuid);
+        final Consumer<Player> check = player -> {
+            player.getLocation(location);
+            if (killPlane.hasFallen(location.getBlockX(), location.getBlockY(), location.getBlockZ())) {
+                this.getSession().onPlayerDeath(player);
             }
+        };
 
-            for (Player player : this.getSession().getAlivePlayers()) {
-                Region3D region = new Region3D(player.getLocation().clone(), player.getLocation().clone());
-                region.expand(200, 10, 200);
-                if (region.contains(this.getSession().getArena().getRegion().getMinPoint())) {
-                    this.getSession().onPlayerDeath(player);
-                }
-            }
-
-        }, 20);
+        this.runTaskLoop(TNT_DEATH, () -> this.getSession().getRoster().forEachAlive(check), 1);
     }
 
     @Override
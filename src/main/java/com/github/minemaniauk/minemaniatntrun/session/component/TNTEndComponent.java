@@ -19,16 +19,14 @@
 
 package com.github.minemaniauk.minemaniatntrun.session.component;
 
-import com.github.cozyplugins.cozylibrary.task.TaskContainer;
 import com.github.minemaniauk.api.game.session.Session;
-import com.github.minemaniauk.api.game.session.SessionComponent;
 import com.github.minemaniauk.minemaniatntrun.arena.TNTArena;
 import com.github.minemaniauk.minemaniatntrun.session.TNTSession;
 import org.jetbrains.annotations.NotNull;
 
 import java.time.Duration;
 
-public class TNTEndComponent extends TaskContainer implements SessionComponent<TNTArena> {
+public class TNTEndComponent extends TNTTickingComponent {
 
     private static final @NotNull String END_IDENTIFIER = "END_IDENTIFIER";
     private static final Duration toWait = Duration.ofSeconds(20);
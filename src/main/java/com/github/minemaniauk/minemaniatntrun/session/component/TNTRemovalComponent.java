@@ -20,27 +20,41 @@
 package com.github.minemaniauk.minemaniatntrun.session.component;
 
 import com.github.cozyplugins.cozylibrary.location.Region3D;
-import com.github.cozyplugins.cozylibrary.task.TaskContainer;
 import com.github.minemaniauk.api.game.session.Session;
-import com.github.minemaniauk.api.game.session.SessionComponent;
+import com.github.minemaniauk.minemaniatntrun.BlockKey;
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
 import com.github.minemaniauk.minemaniatntrun.arena.TNTArena;
+import com.github.minemaniauk.minemaniatntrun.session.BlockMutationBuffer;
+import com.github.minemaniauk.minemaniatntrun.session.TNTBlockIndex;
+import com.github.minemaniauk.minemaniatntrun.session.TNTDecayQueue;
+import com.github.minemaniauk.minemaniatntrun.session.TNTEffect;
 import com.github.minemaniauk.minemaniatntrun.session.TNTSession;
+import com.github.minemaniauk.minemaniatntrun.session.TaskPriority;
 import org.bukkit.Location;
 import org.bukkit.Material;
-import org.bukkit.Particle;
-import org.bukkit.Sound;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
-import org.bukkit.util.Vector;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
-public class TNTRemovalComponent extends TaskContainer implements SessionComponent<TNTArena> {
+public class TNTRemovalComponent extends TNTTickingComponent {
 
     private static final @NotNull String TNT_REMOVAL = "TNT_REMOVAL";
+    private static final @NotNull String TNT_DECAY = "TNT_DECAY";
+    private static final @NotNull String BLOCK_MUTATION = "BLOCK_MUTATION";
+    private static final @NotNull String EFFECTS = "EFFECTS";
+    private static final int DECAY_DELAY = 17;
+    private static final int POLL_PERIOD = 5;
 
     private final @NotNull Session<TNTArena> session;
+    private final @NotNull TNTDecayQueue decayQueue;
+    private World world;
+    private BlockMutationBuffer mutationBuffer;
+    private boolean movementDriven;
 
     /**
      * Used to create the scoreboard component.
@@ -49,6 +63,7 @@ public class TNTRemovalComponent extends TaskContainer implements SessionCompone
      */
     public TNTRemovalComponent(@NotNull Session<TNTArena> session) {
         this.session = session;
+        this.decayQueue = new TNTDecayQueue();
     }
 
     @Override
@@ -59,52 +74,128 @@ public class TNTRemovalComponent extends TaskContainer implements SessionCompone
     @Override
     public void start() {
 
-        this.runTaskLoop(TNT_REMOVAL, () -> {
+        final Region3D region = this.getSession().getArena().getRegion();
+        final TNTBlockIndex index = this.getSession().getTntIndex();
+        this.world = region.getMinPoint().getWorld();
+        this.mutationBuffer = new BlockMutationBuffer(this.world);
 
-            for (Player player : this.getSession().getAlivePlayers()) {
-                Location locationToCheck = player.getLocation().clone().add(new Vector(0, -1, 0));
+        // Check if the index was not built from a paste.
+        if (!index.isBuilt()) index.build(region);
 
-                if (locationToCheck.getBlock().getType().equals(Material.TNT)) {
-                    this.removeTnt(locationToCheck);
-                    continue;
-                }
+        // Check if movement events remove the tnt,
+        // leaving the loop for players standing still.
+        this.movementDriven = MineManiaTNTRun.getInstance().getConfig().getBoolean("tnt_removal.movement_events", false);
+        final long pollPeriod = this.movementDriven
+                ? MineManiaTNTRun.getInstance().getConfig().getLong("tnt_removal.poll_ticks", 20)
+                : POLL_PERIOD;
 
-                Region3D region = new Region3D(
-                        locationToCheck.clone().add(new Vector(2, 1, 2)),
-                        locationToCheck.clone().add(new Vector(-2, -1, -2))
-                );
+        final Location location = new Location(null, 0, 0, 0);
+        final Consumer<Player> poll = player -> {
+            player.getLocation(location);
 
-                for (Block block : region.getBlockList()) {
-                    if (!block.getType().equals(Material.TNT)) continue;
-                    this.removeTnt(block.getLocation());
-                    break;
-                }
-            }
+            // Find the nearest tnt under or around the player.
+            long key = index.findNearest(location.getBlockX(), location.getBlockY() - 1, location.getBlockZ());
+            if (key == BlockKey.NONE) return;
 
-        }, 5);
+            this.removeTnt(new Location(this.world, BlockKey.getX(key), BlockKey.getY(key), BlockKey.getZ(key)));
+        };
+
+        this.runTaskLoop(TNT_REMOVAL, () -> this.getSession().getRoster().forEachAlive(poll), pollPeriod);
+
+        // Decay the blocks that are due this tick.
+        final LongConsumer decay = this::decayTnt;
+        this.runTaskLoop(TNT_DECAY, () -> this.decayQueue.drain(decay), 1);
+
+        // Apply this tick's block changes together.
+        this.runTaskLoop(BLOCK_MUTATION, this.mutationBuffer::flush, 1);
+
+        // Send this tick's merged effects.
+        this.runTaskLoop(EFFECTS, () -> this.getSession().getEffects().flush(this.getSession().getOnlinePlayers()), 1, TaskPriority.NORMAL);
     }
 
     @Override
     public void stop() {
+        this.movementDriven = false;
         this.stopAllTasks();
+        this.decayQueue.clear();
+        if (this.mutationBuffer != null) this.mutationBuffer.flush();
+        this.getSession().getEffects().flush(this.getSession().getOnlinePlayers());
+    }
+
+    /**
+     * Called when a member of the session
+     * steps onto a new block.
+     * This does nothing unless tnt is removed on movement.
+     *
+     * @param playerUuid The player's uuid.
+     * @param location   The location the player moved to.
+     * @return This instance.
+     */
+    public @NotNull TNTRemovalComponent onPlayerMove(@NotNull UUID playerUuid, @NotNull Location location) {
+        if (!this.movementDriven) return this;
+        if (location.getWorld() != this.world) return this;
+        if (!this.getSession().isAlive(playerUuid)) return this;
+
+        // Find the nearest tnt under or around the player.
+        long key = this.getSession().getTntIndex().findNearest(location.getBlockX(), location.getBlockY() - 1, location.getBlockZ());
+        if (key == BlockKey.NONE) return this;
+
+        this.removeTnt(new Location(this.world, BlockKey.getX(key), BlockKey.getY(key), BlockKey.getZ(key)));
+        return this;
     }
 
     /**
      * Used to slowly remove a piece of tnt.
+     * The block turns to glass on the next flush
+     * of the mutation buffer.
      *
      * @param location The location of the tnt.
      * @return This instance.
      */
     public @NotNull TNTRemovalComponent removeTnt(Location location) {
+        final long key = BlockKey.pack(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+
+        // Remove the tnt from the index.
+        this.getSession().getTntIndex().remove(key);
 
-        location.getBlock().setType(Material.WHITE_STAINED_GLASS);
-        this.runTaskLater(UUID.randomUUID().toString(), () -> {
-            location.getBlock().setType(Material.AIR);
-            if (location.getWorld() == null) return;
-            location.getWorld().spawnParticle(Particle.EXPLOSION_NORMAL, location, 1);
-            location.getWorld().playSound(location, Sound.ENTITY_GENERIC_EXPLODE, 0.2F, 1);
-        }, 17);
+        // Record the block so it can be restored.
+        Block block = location.getBlock();
+        this.getSession().getRestoreJournal().record(block);
 
+        this.mutationBuffer.set(key, Material.WHITE_STAINED_GLASS);
+        this.decayQueue.schedule(key, DECAY_DELAY);
         return this;
     }
+
+    /**
+     * Used to get the number of blocks waiting to decay.
+     *
+     * @return The decay queue depth.
+     */
+    public int getDecayQueueDepth() {
+        return this.decayQueue.getDepth();
+    }
+
+    /**
+     * Used to get the number of block changes
+     * waiting for the next flush.
+     *
+     * @return The number of queued block changes.
+     */
+    public int getPendingMutations() {
+        return this.mutationBuffer == null ? 0 : this.mutationBuffer.getPending();
+    }
+
+    /**
+     * Used to turn a decayed block into air.
+     *
+     * @param key The packed block key.
+     */
+    private void decayTnt(long key) {
+        if (this.world == null) return;
+
+        final Location location = new Location(this.world, BlockKey.getX(key), BlockKey.getY(key), BlockKey.getZ(key));
+        this.mutationBuffer.set(key, Material.AIR);
+        this.getSession().getEffects().play(TNTEffect.DECAY, location);
+    }
 }
@@ -19,25 +19,30 @@
 
 package com.github.minemaniauk.minemaniatntrun.session.component;
 
-import com.github.cozyplugins.cozylibrary.scoreboard.Scoreboard;
-import com.github.cozyplugins.cozylibrary.task.TaskContainer;
-import com.github.cozyplugins.cozylibrary.user.PlayerUser;
 import com.github.minemaniauk.api.game.session.Session;
-import com.github.minemaniauk.api.game.session.SessionComponent;
 import com.github.minemaniauk.minemaniatntrun.arena.TNTArena;
+import com.github.minemaniauk.minemaniatntrun.session.TNTScoreboardRenderer;
 import com.github.minemaniauk.minemaniatntrun.session.TNTSession;
 import com.github.minemaniauk.minemaniatntrun.session.TNTStatus;
+import com.github.minemaniauk.minemaniatntrun.session.TaskPriority;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.List;
+
 /**
  * Represents the scoreboard component.
  */
-public class TNTScoreboardComponent extends TaskContainer implements SessionComponent<TNTArena> {
+public class TNTScoreboardComponent extends TNTTickingComponent {
 
     private static final @NotNull String SCOREBOARD_IDENTIFIER = "SCOREBOARD_IDENTIFIER";
+    private static final @NotNull String TITLE = "&e&lTNT RUN";
+    private static final @NotNull String ADDRESS = "&e63.135.76.209:25565";
 
     private final @NotNull Session<TNTArena> session;
+    private final @NotNull String arenaLine;
+    private TNTScoreboardRenderer renderer;
+    private List<Player> lastPlayerList;
 
     /**
      * Used to create the scoreboard component.
@@ -46,6 +51,7 @@ public class TNTScoreboardComponent extends TaskContainer implements SessionComp
      */
     public TNTScoreboardComponent(@NotNull Session<TNTArena> session) {
         this.session = session;
+        this.arenaLine = "&8" + session.getArenaIdentifier().toString().substring(0, 7);
     }
 
     @Override
@@ -55,56 +61,64 @@ public class TNTScoreboardComponent extends TaskContainer implements SessionComp
 
     @Override
     public void start() {
+        this.renderer = new TNTScoreboardRenderer(TITLE);
+        this.lastPlayerList = null;
+
         this.runTaskLoop(SCOREBOARD_IDENTIFIER, () -> {
 
-            Scoreboard scoreboard = this.generateScoreboard();
+            final boolean changed = this.renderer.render(this.generateLines());
+            final List<Player> playerList = this.getSession().getOnlinePlayers();
+
+            // Check if nothing has changed since the last tick.
+            if (!changed && playerList == this.lastPlayerList) return;
+            this.lastPlayerList = playerList;
 
-            for (Player player : this.getSession().getOnlinePlayers()) {
-                new PlayerUser(player).setScoreboard(scoreboard);
+            for (Player player : playerList) {
+                this.renderer.show(player);
             }
 
-        }, 20);
+        }, 20, TaskPriority.LOW);
     }
 
     @Override
     public void stop() {
         this.stopAllTasks();
+        if (this.renderer == null) return;
+
+        for (Player player : this.getSession().getOnlinePlayers()) {
+            this.renderer.hide(player);
+        }
     }
 
     /**
-     * Used to generate a new updated instance of the scoreboard.
+     * Used to generate the lines of the scoreboard
+     * for the current state of the session.
      *
-     * @return The instance of the scoreboard.
+     * @return The scoreboard lines.
      */
-    public @NotNull Scoreboard generateScoreboard() {
+    public @NotNull String[] generateLines() {
         if (this.getSession().getStatus().equals(TNTStatus.END)) {
-            return new Scoreboard()
-                    .setTitle("&e&lTNT RUN")
-                    .setLines("&8" + this.getSession().getArenaIdentifier().toString().substring(0, 7),
-                            "&7",
-                            "&fWinner &a" + this.getSession().getWinnerName(),
-                            "&fEnding in &a" + this.getSession().getComponent(TNTEndComponent.class).getCountDown().getSeconds(),
-                            "&7",
-                            "&e63.135.76.209:25565"
-                    );
+            return new String[]{this.arenaLine,
+                    "&7",
+                    "&fWinner &a" + this.getSession().getWinnerName(),
+                    "&fEnding in &a" + this.getSession().getComponent(TNTEndComponent.class).getCountDown().getSeconds(),
+                    "&7",
+                    ADDRESS
+            };
         }
         if (this.getSession().getStatus().equals(TNTStatus.WAITING)) {
-            return new Scoreboard()
-                    .setTitle("&e&lTNT RUN")
-                    .setLines("&8" + this.getSession().getArenaIdentifier().toString().substring(0, 7),
-                            "&7",
-                            "&fStarting in &a" + this.getSession().getComponent(TNTStartUpComponent.class).getCountDown().toSeconds(),
-                            "&7",
-                            "&e63.135.76.209:25565"
-                    );
+            return new String[]{this.arenaLine,
+                    "&7",
+                    "&fStarting in &a" + this.getSession().getComponent(TNTStartUpComponent.class).getCountDown().toSeconds(),
+                    "&7",
+                    ADDRESS
+            };
         }
-        return new Scoreboard()
-                .setTitle("&e&lTNT RUN")
-                .setLines("&8" + this.getSession().getArenaIdentifier().toString().substring(0, 7),
-                        "&7",
-                        "&fPlayers Alive &a" + this.getSession().getAmountOfPlayersAlive(),
-                        "&7",
-                        "&e63.135.76.209:25565"
-                );
+        return new String[]{this.arenaLine,
+                "&7",
+                "&fPlayers Alive &a" + this.getSession().getAmountOfPlayersAlive(),
+                "&7",
+                ADDRESS
+        };
     }
 }
@@ -20,21 +20,39 @@
 package com.github.minemaniauk.minemaniatntrun.session.component;
 
 import com.github.cozyplugins.cozylibrary.location.Region3D;
-import com.github.cozyplugins.cozylibrary.task.TaskContainer;
 import com.github.minemaniauk.api.game.session.Session;
-import com.github.minemaniauk.api.game.session.SessionComponent;
 import com.github.minemaniauk.minemaniatntrun.arena.TNTArena;
 import com.github.minemaniauk.minemaniatntrun.session.TNTSession;
+import com.github.minemaniauk.minemaniatntrun.session.TaskPriority;
 import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerMoveEvent;
 import org.jetbrains.annotations.NotNull;
 
-public class TNTSpectatorComponent extends TaskContainer implements SessionComponent<TNTArena> {
+import java.util.function.Consumer;
+
+/**
+ * Represents the spectator component.
+ * Players are put into spectator mode and moved back into the
+ * arena once, when they die or join after the game has started,
+ * and are kept inside the arena as they move. A slow sweep
+ * catches anything the transitions missed.
+ */
+public class TNTSpectatorComponent extends TNTTickingComponent {
 
     private static final @NotNull String SPECTATOR_IDENTIFIER = "SPECTATOR_IDENTIFIER";
+    private static final int SWEEP_PERIOD = 100;
 
     private final @NotNull Session<TNTArena> session;
+    private Location spawnPoint;
+    private int minX;
+    private int minY;
+    private int minZ;
+    private int maxX;
+    private int maxY;
+    private int maxZ;
+    private boolean running;
 
     /**
      * Used to create the scoreboard component.
@@ -52,23 +70,91 @@ public class TNTSpectatorComponent extends TaskContainer implements SessionCompo
 
     @Override
     public void start() {
+        this.spawnPoint = this.getSession().getArena().getSpawnPoint();
 
-        Location spawnPoint = this.getSession().getArena().getSpawnPoint();
-        Region3D region = this.getSession().getArena().getRegion();
+        // Work out the bounds of the arena once.
+        final Region3D region = this.getSession().getArena().getRegion();
+        this.minX = region.getMinPoint().getBlockX();
+        this.minY = region.getMinPoint().getBlockY();
+        this.minZ = region.getMinPoint().getBlockZ();
+        this.maxX = region.getMaxPoint().getBlockX();
+        this.maxY = region.getMaxPoint().getBlockY();
+        this.maxZ = region.getMaxPoint().getBlockZ();
+        this.running = true;
 
-        this.runTaskLoop(SPECTATOR_IDENTIFIER, () -> {
+        final Location location = new Location(null, 0, 0, 0);
+        final Consumer<Player> sweep = player -> {
+            this.setSpectator(player);
+            if (!this.isInside(player.getLocation(location))) player.teleport(this.spawnPoint);
+        };
 
-            for (Player player : this.getSession().getSpectators()) {
-                player.setGameMode(GameMode.SPECTATOR);
-                if (region.contains(player.getLocation())) continue;
-                player.teleport(spawnPoint);
-            }
-
-        }, 20);
+        this.getSession().getRoster().forEachSpectator(this::setSpectator);
+        this.runTaskLoop(SPECTATOR_IDENTIFIER, () -> this.getSession().getRoster().forEachSpectator(sweep), SWEEP_PERIOD, TaskPriority.LOW);
     }
 
     @Override
     public void stop() {
+        this.running = false;
         this.stopAllTasks();
     }
+
+    /**
+     * Called when a player dies or joins
+     * after the game has started.
+     *
+     * @param player The instance of the player.
+     * @return This instance.
+     */
+    public @NotNull TNTSpectatorComponent onSpectator(@NotNull Player player) {
+        if (!this.running) return this;
+        this.setSpectator(player);
+
+        // Move players that fell out of the arena back inside.
+        if (!this.isInside(player.getLocation())) player.teleport(this.spawnPoint);
+        return this;
+    }
+
+    /**
+     * Called when a member of the session
+     * moves onto a new block.
+     * Spectators leaving the arena are moved
+     * to the spawn point instead.
+     *
+     * @param event The move event.
+     * @return This instance.
+     */
+    public @NotNull TNTSpectatorComponent onPlayerMove(@NotNull PlayerMoveEvent event) {
+        if (!this.running) return this;
+        if (this.getSession().isAlive(event.getPlayer().getUniqueId())) return this;
+
+        final Location to = event.getTo();
+        if (to == null || this.isInside(to)) return this;
+
+        event.setTo(this.spawnPoint.clone());
+        return this;
+    }
+
+    /**
+     * Used to check if a block is inside the arena.
+     *
+     * @param x The block x coordinate.
+     * @param y The block y coordinate.
+     * @param z The block z coordinate.
+     * @return True if the block is inside the arena.
+     */
+    public boolean isInside(int x, int y, int z) {
+        return x >= this.minX && x <= this.maxX
+                && y >= this.minY && y <= this.maxY
+                && z >= this.minZ && z <= this.maxZ;
+    }
+
+    private void setSpectator(@NotNull Player player) {
+        if (player.getGameMode() == GameMode.SPECTATOR) return;
+        player.setGameMode(GameMode.SPECTATOR);
+    }
+
+    private boolean isInside(@NotNull Location location) {
+        return location.getWorld() == this.spawnPoint.getWorld()
+                && this.isInside(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
 }
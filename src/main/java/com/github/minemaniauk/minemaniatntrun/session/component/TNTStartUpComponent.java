@@ -19,9 +19,7 @@
 
 package com.github.minemaniauk.minemaniatntrun.session.component;
 
-import com.github.cozyplugins.cozylibrary.task.TaskContainer;
 import com.github.minemaniauk.api.game.session.Session;
-import com.github.minemaniauk.api.game.session.SessionComponent;
 import com.github.minemaniauk.minemaniatntrun.arena.TNTArena;
 import com.github.minemaniauk.minemaniatntrun.session.TNTSession;
 import com.github.minemaniauk.minemaniatntrun.session.TNTStatus;
@@ -30,7 +28,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.time.Duration;
 
-public class TNTStartUpComponent extends TaskContainer implements SessionComponent<TNTArena> {
+public class TNTStartUpComponent extends TNTTickingComponent {
 
     private static final @NotNull String STARTUP_IDENTIFIER = "STARTUP_IDENTIFIER";
     private static final Duration toWait = Duration.ofSeconds(20);
@@ -60,8 +58,9 @@ public class TNTStartUpComponent extends TaskContainer implements SessionCompone
 
         this.runTaskLoop(STARTUP_IDENTIFIER, () -> {
 
-            // Check for new players.
-            for (Player player : this.getSession().getPlayersJoined()) {
+            // Welcome the players that have joined.
+            Player player;
+            while ((player = this.getSession().pollJoinedPlayer()) != null) {
                 this.getSession().onPlayerJoin(player);
             }
 
@@ -0,0 +1,90 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.session.component;
+
+import com.github.minemaniauk.api.game.session.SessionComponent;
+import com.github.minemaniauk.minemaniatntrun.MineManiaTNTRun;
+import com.github.minemaniauk.minemaniatntrun.arena.TNTArena;
+import com.github.minemaniauk.minemaniatntrun.session.SessionTicker;
+import com.github.minemaniauk.minemaniatntrun.session.TNTSession;
+import com.github.minemaniauk.minemaniatntrun.session.TaskPriority;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Represents a session component whose loops
+ * are run by the plugin's {@link SessionTicker}
+ * instead of their own scheduler tasks.
+ */
+public abstract class TNTTickingComponent implements SessionComponent<TNTArena> {
+
+    private final @NotNull Map<String, SessionTicker.Task> taskMap = new HashMap<>();
+
+    @Override
+    public abstract @NotNull TNTSession getSession();
+
+    /**
+     * Used to run a critical loop every period of ticks.
+     * A loop with the same identifier is replaced.
+     *
+     * @param identifier The loop identifier.
+     * @param runnable   The loop to run.
+     * @param period     The number of ticks between each run.
+     */
+    protected void runTaskLoop(@NotNull String identifier, @NotNull Runnable runnable, long period) {
+        this.runTaskLoop(identifier, runnable, period, TaskPriority.CRITICAL);
+    }
+
+    /**
+     * Used to run a loop every period of ticks.
+     * A loop with the same identifier is replaced.
+     *
+     * @param identifier The loop identifier.
+     * @param runnable   The loop to run.
+     * @param period     The number of ticks between each run.
+     * @param priority   How the loop backs off under tick pressure.
+     */
+    protected void runTaskLoop(@NotNull String identifier, @NotNull Runnable runnable, long period, @NotNull TaskPriority priority) {
+        this.stopTask(identifier);
+        this.taskMap.put(identifier, MineManiaTNTRun.getInstance().getSessionTicker().schedule(
+                identifier, this.getSession().getArenaIdentifier(), period, priority, runnable
+        ));
+    }
+
+    /**
+     * Used to stop a loop.
+     *
+     * @param identifier The loop identifier.
+     */
+    protected void stopTask(@NotNull String identifier) {
+        final SessionTicker.Task task = this.taskMap.remove(identifier);
+        if (task != null) task.cancel();
+    }
+
+    /**
+     * Used to stop every loop of this component.
+     */
+    protected void stopAllTasks() {
+        this.taskMap.values().forEach(SessionTicker.Task::cancel);
+        this.taskMap.clear();
+    }
+}
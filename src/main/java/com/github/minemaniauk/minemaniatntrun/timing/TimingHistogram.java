@@ -0,0 +1,161 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.timing;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Represents a histogram of how long a task takes in nanoseconds.
+ * Each power of two is split into 8 buckets, so percentiles
+ * are within 12.5% and recording is a single array increment.
+ */
+public class TimingHistogram {
+
+    /**
+     * The number of nanoseconds in a 20 tps server tick.
+     */
+    public static final long TICK_NANOS = 50_000_000L;
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 << SUB_BUCKET_BITS;
+
+    private final long[] counts;
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+    private long startNanos;
+
+    /**
+     * Used to create an empty timing histogram.
+     */
+    public TimingHistogram() {
+        this.counts = new long[BUCKETS];
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Used to record how long a task took.
+     *
+     * @param nanos The time taken in nanoseconds.
+     * @return This instance.
+     */
+    public @NotNull TimingHistogram record(long nanos) {
+        if (nanos < 0) nanos = 0;
+
+        this.counts[TimingHistogram.getBucket(nanos)]++;
+        this.count++;
+        this.totalNanos += nanos;
+        if (nanos > this.maxNanos) this.maxNanos = nanos;
+        return this;
+    }
+
+    /**
+     * Used to get a percentile of the recorded times.
+     *
+     * @param percentile The percentile between 0 and 100.
+     * @return The time in nanoseconds.
+     */
+    public long getPercentile(double percentile) {
+        if (this.count == 0) return 0;
+
+        final long target = Math.max(1, (long) Math.ceil(this.count * percentile / 100D));
+        long seen = 0;
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += this.counts[bucket];
+            if (seen >= target) return Math.min(TimingHistogram.getUpperBound(bucket), this.maxNanos);
+        }
+
+        return this.maxNanos;
+    }
+
+    /**
+     * Used to get the number of recorded times.
+     *
+     * @return The number of recorded times.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Used to get the total recorded time.
+     *
+     * @return The total time in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return this.totalNanos;
+    }
+
+    /**
+     * Used to get the longest recorded time.
+     *
+     * @return The longest time in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return this.maxNanos;
+    }
+
+    /**
+     * Used to get the share of each tick's 50ms
+     * budget this task has used since the
+     * histogram was created or reset.
+     *
+     * @return The share between 0 and 1.
+     */
+    public double getTickShare() {
+        final long elapsedNanos = System.nanoTime() - this.startNanos;
+        if (elapsedNanos <= 0) return 0;
+        return (double) this.totalNanos / elapsedNanos;
+    }
+
+    /**
+     * Used to remove every recorded time.
+     *
+     * @return This instance.
+     */
+    public @NotNull TimingHistogram reset() {
+        Arrays.fill(this.counts, 0);
+        this.count = 0;
+        this.totalNanos = 0;
+        this.maxNanos = 0;
+        this.startNanos = System.nanoTime();
+        return this;
+    }
+
+    private static int getBucket(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+
+        final int highestBit = 63 - Long.numberOfLeadingZeros(nanos);
+        final int subBucket = (int) (nanos >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((highestBit - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    private static long getUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+
+        final int shift = (bucket >> SUB_BUCKET_BITS) - 1;
+        final long lowerBound = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * MineManiaTNTRun
+ * Used for interacting with the database and message broker.
+ * Copyright (C) 2023  MineManiaUK Staff
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.github.minemaniauk.minemaniatntrun.timing;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Represents the registry of component timings.
+ * Keeps a histogram for each component loop in each arena.
+ * This should only be used on the main server thread.
+ */
+public class TimingRegistry {
+
+    private final @NotNull Map<String, Map<UUID, TimingHistogram>> histogramMap;
+
+    /**
+     * Used to create an empty timing registry.
+     */
+    public TimingRegistry() {
+        this.histogramMap = new LinkedHashMap<>();
+    }
+
+    /**
+     * Used to get the histogram of a component in an arena,
+     * creating it if it does not exist.
+     *
+     * @param component       The component loop identifier.
+     * @param arenaIdentifier The arena's identifier.
+     * @return The histogram.
+     */
+    public @NotNull TimingHistogram getHistogram(@NotNull String component, @NotNull UUID arenaIdentifier) {
+        return this.histogramMap
+                .computeIfAbsent(component, key -> new LinkedHashMap<>())
+                .computeIfAbsent(arenaIdentifier, key -> new TimingHistogram());
+    }
+
+    /**
+     * Used to remove the histograms of an arena,
+     * once its session has ended or the arena no longer exists.
+     *
+     * @param arenaIdentifier The arena's identifier.
+     * @return This instance.
+     */
+    public @NotNull TimingRegistry remove(@NotNull UUID arenaIdentifier) {
+        this.histogramMap.values().forEach(arenaMap -> arenaMap.remove(arenaIdentifier));
+        this.histogramMap.values().removeIf(Map::isEmpty);
+        return this;
+    }
+
+    /**
+     * Used to get every histogram, by component
+     * and then by arena identifier.
+     *
+     * @return The unmodifiable map of histograms.
+     */
+    public @NotNull Map<String, Map<UUID, TimingHistogram>> getHistogramMap() {
+        return Collections.unmodifiableMap(this.histogramMap);
+    }
+
+    /**
+     * Used to reset every histogram.
+     *
+     * @return This instance.
+     */
+    public @NotNull TimingRegistry reset() {
+        this.histogramMap.values().forEach(arenaMap -> arenaMap.values().forEach(TimingHistogram::reset));
+        return this;
+    }
+}